@@ -3,24 +3,78 @@ package com.koalaswap.chat.client;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.koalaswap.chat.config.ExternalServicesProperties;
 import com.koalaswap.common.dto.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 
+/**
+ * product-service 内部 brief 客户端（带缓存）
+ * - L1：进程内 Caffeine（异步缓存：同一 id 的并发未命中共享同一次加载，即 single-flight）
+ * - L2：可选 Redis（chat.product-cache.redis-enabled=true 时启用，多实例共享）
+ * - 失效：订阅 product-service 的 product:changed 通知（见 ProductChangedSubscriber），TTL 兜底
+ * 不存在的商品不缓存；回源失败时只返回已缓存的部分（降级，不抛异常）。
+ */
 @Component
 public class ProductClient {
+    private static final Logger log = LoggerFactory.getLogger(ProductClient.class);
+
+    private static final String L2_PREFIX = "chat:product:brief:";
+
     private final RestTemplate rt;
     private final ExternalServicesProperties props;
+    private final StringRedisTemplate redis;
     private final ObjectMapper om = new ObjectMapper();
 
-    public ProductClient(RestTemplate rt, ExternalServicesProperties props) {
-        this.rt = rt; this.props = props;
+    private final boolean l2Enabled;
+    private final Duration l2Ttl;
+    private final int batchMax;
+    private final AsyncLoadingCache<UUID, ProductBrief> cache;
+
+    public ProductClient(RestTemplate rt,
+                         ExternalServicesProperties props,
+                         StringRedisTemplate redis,
+                         @Value("${chat.product-cache.ttl:PT5M}") Duration ttl,
+                         @Value("${chat.product-cache.max-size:50000}") long maxSize,
+                         @Value("${chat.product-cache.redis-enabled:false}") boolean l2Enabled,
+                         @Value("${chat.product-cache.redis-ttl:PT10M}") Duration l2Ttl,
+                         @Value("${chat.product-cache.batch-max:200}") int batchMax) {
+        this.rt = rt; this.props = props; this.redis = redis;
+        this.l2Enabled = l2Enabled;
+        this.l2Ttl = l2Ttl;
+        this.batchMax = batchMax;
+        // 加载在调用线程内执行（沿用 RestTemplate 的超时）；其他线程的并发请求等待同一个 future
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .executor(Runnable::run)
+                .buildAsync(new CacheLoader<UUID, ProductBrief>() {
+                    @Override
+                    public ProductBrief load(UUID id) {
+                        return loadAll(Set.of(id)).get(id);
+                    }
+
+                    @Override
+                    public Map<UUID, ProductBrief> loadAll(Set<? extends UUID> ids) {
+                        return loadThrough(ids);
+                    }
+                });
     }
 
     /** chat-service 内部使用 */
@@ -29,21 +83,95 @@ public class ProductClient {
     /** 对应 product-service 的返回结构（ApiResponse.data 内部的元素） */
     private static record ProductBriefRes(UUID id, UUID sellerId, String firstImageUrl, String title, BigDecimal price) {}
 
-    /** 批量 brief：GET /api/internal/products/brief/batch?ids=...&ids=...  返回 ApiResponse<List<ProductBriefRes>> */
+    /** 批量 brief（先走缓存，未命中的一次性回源） */
     public Map<UUID, ProductBrief> batchBrief(Collection<UUID> ids) {
         if (ids == null || ids.isEmpty()) return Collections.emptyMap();
 
         List<UUID> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.isEmpty()) return Collections.emptyMap();
+        try {
+            return new LinkedHashMap<>(cache.getAll(distinct).join());
+        } catch (Exception e) {
+            log.warn("product brief batch load failed, serving cached only: {}", e.toString());
+            return cache.synchronous().getAllPresent(distinct); // 出错降级为已缓存部分
+        }
+    }
+
+    /** 单查 brief（先走缓存） */
+    public Optional<ProductBrief> getBrief(UUID productId) {
+        if (productId == null) return Optional.empty();
+        try {
+            return Optional.ofNullable(cache.get(productId).join());
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
 
-        String base = props.getProductBaseUrl() + "/api/internal/products/brief/batch";
-        UriComponentsBuilder b = UriComponentsBuilder.fromHttpUrl(base);
-        distinct.forEach(id -> b.queryParam("ids", id.toString()));
-        String url = b.toUriString();
+    /** 失效某个商品的缓存（L1 + L2） */
+    public void invalidate(UUID productId) {
+        cache.synchronous().invalidate(productId);
+        if (l2Enabled) {
+            try { redis.delete(L2_PREFIX + productId); } catch (Exception ignored) {}
+        }
+    }
 
+    // ---------- 回源 ----------
+
+    /** L1 未命中：L2（可选）-> HTTP，并回填 L2；HTTP 失败时抛出，让本次加载失败而不是缓存空结果 */
+    private Map<UUID, ProductBrief> loadThrough(Set<? extends UUID> ids) {
+        Map<UUID, ProductBrief> out = new HashMap<>();
+        List<UUID> missing = new ArrayList<>(ids);
+
+        if (l2Enabled) {
+            try {
+                List<String> values = redis.opsForValue().multiGet(missing.stream().map(id -> L2_PREFIX + id).toList());
+                if (values != null) {
+                    for (int i = 0; i < missing.size(); i++) {
+                        String v = values.get(i);
+                        if (v != null) out.put(missing.get(i), om.readValue(v, ProductBrief.class));
+                    }
+                    missing.removeAll(out.keySet());
+                }
+            } catch (Exception e) {
+                log.warn("Redis read failed for product briefs, fallback to HTTP: {}", e.getClass().getSimpleName());
+            }
+        }
+        if (missing.isEmpty()) return out;
+
+        Map<UUID, ProductBrief> fetched = new HashMap<>();
+        for (int from = 0; from < missing.size(); from += batchMax) {
+            fetched.putAll(fetchBatch(missing.subList(from, Math.min(from + batchMax, missing.size()))));
+        }
+        out.putAll(fetched);
+
+        if (l2Enabled && !fetched.isEmpty()) writeL2(fetched);
+        return out;
+    }
+
+    private void writeL2(Map<UUID, ProductBrief> briefs) {
         try {
-            ResponseEntity<String> resp = rt.getForEntity(url, String.class);
-            if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) return Collections.emptyMap();
+            Expiration exp = Expiration.from(l2Ttl);
+            Map<byte[], byte[]> entries = new HashMap<>();
+            for (var e : briefs.entrySet()) {
+                entries.put((L2_PREFIX + e.getKey()).getBytes(StandardCharsets.UTF_8), om.writeValueAsBytes(e.getValue()));
+            }
+            redis.executePipelined((RedisCallback<Object>) conn -> {
+                entries.forEach((k, v) -> conn.stringCommands().set(k, v, exp, RedisStringCommands.SetOption.upsert()));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Redis write failed for product briefs: {}", e.getClass().getSimpleName());
+        }
+    }
 
+    /** POST /api/internal/products/brief/batch  body=[id...]  返回 ApiResponse<List<ProductBriefRes>> */
+    private Map<UUID, ProductBrief> fetchBatch(List<UUID> ids) {
+        String url = props.getProductBaseUrl() + "/api/internal/products/brief/batch";
+        ResponseEntity<String> resp = rt.postForEntity(url, ids, String.class);
+        if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) {
+            throw new IllegalStateException("product brief batch failed: " + resp.getStatusCode());
+        }
+        try {
             ApiResponse<List<ProductBriefRes>> wrapped = om.readValue(
                     resp.getBody(), new TypeReference<ApiResponse<List<ProductBriefRes>>>() {}
             );
@@ -57,26 +185,7 @@ public class ProductClient {
             }
             return out;
         } catch (Exception e) {
-            return Collections.emptyMap(); // 出错降级为空
-        }
-    }
-
-    /** 单查 brief：GET /api/internal/products/brief/{id}  返回 ApiResponse<ProductBriefRes> */
-    public Optional<ProductBrief> getBrief(UUID productId) {
-        String url = props.getProductBaseUrl() + "/api/internal/products/brief/" + productId;
-        try {
-            ResponseEntity<String> resp = rt.getForEntity(url, String.class);
-            if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) return Optional.empty();
-
-            ApiResponse<ProductBriefRes> wrapped = om.readValue(
-                    resp.getBody(), new TypeReference<ApiResponse<ProductBriefRes>>() {}
-            );
-            ProductBriefRes p = wrapped.data();
-            if (p == null || p.id() == null) return Optional.empty();
-
-            return Optional.of(new ProductBrief(p.id(), p.sellerId(), p.firstImageUrl(), p.title(), p.price()));
-        } catch (Exception e) {
-            return Optional.empty();
+            throw new IllegalStateException("product brief batch parse failed", e);
         }
     }
 }
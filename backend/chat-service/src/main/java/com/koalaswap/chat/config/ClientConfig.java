@@ -7,6 +7,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @EnableConfigurationProperties(ExternalServicesProperties.class)
 @Configuration
 public class ClientConfig {
@@ -18,4 +21,10 @@ public class ClientConfig {
         f.setReadTimeout(3000);
         return new RestTemplate(f);
     }
+
+    /** 聚合查询的并发扇出（虚拟线程：下游调用均为阻塞 HTTP，按任务开线程即可） */
+    @Bean(destroyMethod = "close")
+    public ExecutorService aggregationExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
 }
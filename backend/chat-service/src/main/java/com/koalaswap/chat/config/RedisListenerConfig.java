@@ -2,7 +2,10 @@
 package com.koalaswap.chat.config;
 
 import com.koalaswap.chat.events.OrderEventsSubscriber;
+import com.koalaswap.chat.events.ProductChangedSubscriber;
 import com.koalaswap.chat.events.ReviewEventsSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,6 +16,7 @@ import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 @Configuration
 public class RedisListenerConfig {
+    private static final Logger log = LoggerFactory.getLogger(RedisListenerConfig.class);
 
     @Value("${chat.order.redis-channel:orders:status-changed}")
     private String ordersChannel;
@@ -20,18 +24,21 @@ public class RedisListenerConfig {
     @Value("${chat.review.redis-channel:review-events}")
     private String reviewsChannel;
 
+    @Value("${chat.product.redis-channel:product:changed}")
+    private String productsChannel;
+
     @Bean
     public RedisMessageListenerContainer container(RedisConnectionFactory factory,
                                                    OrderEventsSubscriber orderSubscriber,
-                                                   ReviewEventsSubscriber reviewSubscriber) {
+                                                   ReviewEventsSubscriber reviewSubscriber,
+                                                   ProductChangedSubscriber productSubscriber) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(factory);
         container.addMessageListener(orderSubscriber, new ChannelTopic(ordersChannel));
         container.addMessageListener(reviewSubscriber, new ChannelTopic(reviewsChannel));
+        container.addMessageListener(productSubscriber, new ChannelTopic(productsChannel));
 
-        System.out.println("[RedisListenerConfig] Configure Redis subscriptions:");
-        System.out.println("  - Orders channel: " + ordersChannel);
-        System.out.println("  - Reviews channel: " + reviewsChannel);
+        log.info("Redis subscriptions: orders={}, reviews={}, products={}", ordersChannel, reviewsChannel, productsChannel);
 
         return container;
     }
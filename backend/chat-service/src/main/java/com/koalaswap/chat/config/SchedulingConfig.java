@@ -0,0 +1,22 @@
+package com.koalaswap.chat.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * @Scheduled 使用的调度器（按名称 taskScheduler 解析）。
+     * WebSocketConfig 的 brokerTaskScheduler 会让 Boot 不再创建默认调度器，@Scheduled 将只剩一个线程；
+     * 这里显式提供，线程数/前缀取 spring.task.scheduling.*，各定时任务（批量刷写、对账）互不阻塞
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
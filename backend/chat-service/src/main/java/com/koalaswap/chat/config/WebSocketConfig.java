@@ -23,6 +23,35 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${chat.ws.allow-origins:*}")
     private String allowOrigins;
 
+    /**
+     * Broker 模式：
+     * - simple：进程内 SimpleBroker（单实例；订阅与 /user 会话只在本 JVM）
+     * - relay ：中继到外部 STOMP Broker，并在各实例间广播用户注册表，可多副本部署
+     */
+    @Value("${chat.ws.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.ws.broker.relay-host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.ws.broker.relay-port:61613}")
+    private int relayPort;
+
+    @Value("${chat.ws.broker.virtual-host:}")
+    private String virtualHost;
+
+    @Value("${chat.ws.broker.client-login:guest}")
+    private String clientLogin;
+
+    @Value("${chat.ws.broker.client-passcode:guest}")
+    private String clientPasscode;
+
+    @Value("${chat.ws.broker.system-login:guest}")
+    private String systemLogin;
+
+    @Value("${chat.ws.broker.system-passcode:guest}")
+    private String systemPasscode;
+
     /** 提供给 SimpleBroker 的 TaskScheduler（用于心跳） */
     @Bean
     public ThreadPoolTaskScheduler brokerTaskScheduler() {
@@ -35,9 +64,27 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        var sbr = registry.enableSimpleBroker("/topic", "/queue");
-        sbr.setHeartbeatValue(new long[]{10000, 10000});     // 心跳间隔（毫秒）
-        sbr.setTaskScheduler(brokerTaskScheduler());          // ★ 关键：绑定调度器
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            var relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(clientLogin)
+                    .setClientPasscode(clientPasscode)
+                    .setSystemLogin(systemLogin)
+                    .setSystemPasscode(systemPasscode)
+                    .setSystemHeartbeatSendInterval(10000)
+                    .setSystemHeartbeatReceiveInterval(10000)
+                    // 本实例解析不到的 /user 目的地广播给其它实例；用户注册表在集群内共享
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (virtualHost != null && !virtualHost.isBlank()) {
+                relay.setVirtualHost(virtualHost);
+            }
+        } else {
+            var sbr = registry.enableSimpleBroker("/topic", "/queue");
+            sbr.setHeartbeatValue(new long[]{10000, 10000});     // 心跳间隔（毫秒）
+            sbr.setTaskScheduler(brokerTaskScheduler());          // ★ 关键：绑定调度器
+        }
 
         registry.setApplicationDestinationPrefixes("/app");
         registry.setUserDestinationPrefix("/user");
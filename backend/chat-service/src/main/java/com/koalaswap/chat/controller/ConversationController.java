@@ -23,6 +23,11 @@ import java.util.UUID;
 @RequestMapping("/api/chat")
 public class ConversationController {
 
+    /** 增量同步单次最多返回条数 */
+    private static final int MAX_DELTA_LIMIT = 500;
+    /** 历史游标页单页最多条数 */
+    private static final int MAX_HISTORY_LIMIT = 100;
+
     private final ChatDomainService chat;
     private final ProductClient productClient;
     private final RateLimitService rateLimit;
@@ -86,19 +91,47 @@ public class ConversationController {
                                                                            @RequestParam(defaultValue = "20") int size) {
         CurrentUser.idRequired();
         var data = chat.pageMessages(conversationId, PageRequest.of(page, size));
-        var resp = data.map(m -> new MessageResponse(
-                m.getId(), m.getType(), m.getSenderId(), m.getBody(), m.getImageUrl(), m.getSystemEvent(), m.getMeta(), m.getCreatedAt()
-        ));
+        var resp = data.map(MessageResponse::of);
         return ResponseEntity.ok(ApiResponse.ok(resp));
     }
 
+    /**
+     * 增量同步：GET /conversations/{id}/messages?afterSeq=N&limit=100
+     * 断线重连 / 发现 seq 缺口时，拉取 seq > N 的消息（升序）；hasMore=true 时以 lastSeq 继续拉
+     */
+    @GetMapping(value = "/conversations/{id}/messages", params = "afterSeq")
+    public ResponseEntity<ApiResponse<MessageDeltaResponse>> messagesAfter(@PathVariable("id") UUID conversationId,
+                                                                           @RequestParam long afterSeq,
+                                                                           @RequestParam(defaultValue = "100") int limit) {
+        CurrentUser.idRequired();
+        int capped = Math.max(1, Math.min(limit, MAX_DELTA_LIMIT));
+        var messages = chat.messagesAfter(conversationId, Math.max(0, afterSeq), capped);
+        long lastSeq = messages.isEmpty() ? afterSeq : messages.get(messages.size() - 1).seq();
+        return ResponseEntity.ok(ApiResponse.ok(new MessageDeltaResponse(messages, lastSeq, messages.size() == capped)));
+    }
+
+    /**
+     * 历史游标翻页：GET /conversations/{id}/messages?limit=30[&before=游标]
+     * 最新在前；before 取上一页返回的 nextBefore（会话内 seq），不发 count，页深不影响耗时
+     */
+    @GetMapping(value = "/conversations/{id}/messages", params = {"limit", "!afterSeq", "!page"})
+    public ResponseEntity<ApiResponse<MessageHistoryResponse>> messagesBefore(@PathVariable("id") UUID conversationId,
+                                                                              @RequestParam(required = false) Long before,
+                                                                              @RequestParam int limit) {
+        CurrentUser.idRequired();
+        int capped = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+        var slice = chat.messagesBefore(conversationId, before, capped);
+        var messages = slice.getContent();
+        Long nextBefore = slice.hasNext() ? messages.get(messages.size() - 1).seq() : null;
+        return ResponseEntity.ok(ApiResponse.ok(new MessageHistoryResponse(messages, nextBefore, slice.hasNext())));
+    }
+
     /** 发送限流：同会话同用户 2 秒一条，否则 429 */
     @PostMapping("/conversations/{id}/messages")
     public ResponseEntity<ApiResponse<MessageResponse>> send(@PathVariable("id") UUID conversationId,
                                                              @Valid @RequestBody SendMessageRequest req) {
         UUID current = CurrentUser.idRequired();
-        String key = conversationId + ":" + current;
-        if (!rateLimit.allowSend(key)) {
+        if (!rateLimit.allowSend(conversationId, current)) {
             return ResponseEntity.status(429).body(ApiResponse.error("You are sending messages too frequently. Please try again shortly."));
         }
 
@@ -109,12 +142,9 @@ public class ConversationController {
             return ResponseEntity.badRequest().body(ApiResponse.error("Image message URL must not be empty."));
         }
 
+        // sendMessage 内部已在提交后推送 WebSocket，这里不再重复推送
         var m = chat.sendMessage(conversationId, current, req.type(), req.body(), req.imageUrl());
-        var body = new MessageResponse(
-                m.getId(), m.getType(), m.getSenderId(), m.getBody(), m.getImageUrl(), m.getSystemEvent(), m.getMeta(), m.getCreatedAt()
-        );
-        wsPublisher.publishNewMessage(conversationId, body);
-        return ResponseEntity.ok(ApiResponse.ok(body));
+        return ResponseEntity.ok(ApiResponse.ok(MessageResponse.of(m)));
     }
 
     /** ✅ 改造：markRead 返回游标并推送读回执 */
@@ -3,6 +3,7 @@ package com.koalaswap.chat.controller;
 import com.koalaswap.chat.security.CurrentUser;          // [B3 CHANGE]
 import com.koalaswap.chat.service.ConversationCommandService;
 import com.koalaswap.chat.service.ConversationQueryService;
+import com.koalaswap.chat.service.UnreadTotalService;
 import com.koalaswap.chat.dto.ConversationListItem;
 import com.koalaswap.common.dto.ApiResponse;
 import org.springframework.data.domain.Page;
@@ -18,9 +19,17 @@ public class ConversationListController {
 
     private final ConversationQueryService query;
     private final ConversationCommandService cmd;
+    private final UnreadTotalService unreadTotals;
 
-    public ConversationListController(ConversationQueryService q, ConversationCommandService c) {
-        this.query = q; this.cmd = c;
+    public ConversationListController(ConversationQueryService q, ConversationCommandService c, UnreadTotalService u) {
+        this.query = q; this.cmd = c; this.unreadTotals = u;
+    }
+
+    /** 未读总数（角标）；变化时也会通过 /user/queue/chat 推送 */
+    @GetMapping("/unread-total")
+    public ResponseEntity<ApiResponse<Long>> unreadTotal() {
+        UUID uid = CurrentUser.idRequired();
+        return ResponseEntity.ok(ApiResponse.ok(unreadTotals.total(uid)));
     }
 
     /** [B3 CHANGE] 默认 aggregate=true；可通过参数关闭以便排查 */
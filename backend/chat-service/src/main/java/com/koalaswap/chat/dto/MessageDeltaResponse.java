@@ -0,0 +1,11 @@
+// src/main/java/com/koalaswap/chat/dto/MessageDeltaResponse.java
+package com.koalaswap.chat.dto;
+
+import java.util.List;
+
+/** 增量同步结果：messages 按 seq 升序；lastSeq 为本批最后一条的 seq（无新消息时等于请求的 afterSeq） */
+public record MessageDeltaResponse(
+        List<MessageResponse> messages,
+        long lastSeq,
+        boolean hasMore
+) {}
@@ -0,0 +1,14 @@
+// src/main/java/com/koalaswap/chat/dto/MessageHistoryResponse.java
+package com.koalaswap.chat.dto;
+
+import java.util.List;
+
+/**
+ * 历史消息游标页：messages 按 seq 倒序（最新在前）；
+ * nextBefore 为下一页的游标（本页最早一条的 seq），hasMore=false 时为 null
+ */
+public record MessageHistoryResponse(
+        List<MessageResponse> messages,
+        Long nextBefore,
+        boolean hasMore
+) {}
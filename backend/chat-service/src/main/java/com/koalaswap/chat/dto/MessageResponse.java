@@ -1,6 +1,7 @@
 // src/main/java/com/koalaswap/chat/dto/MessageResponse.java
 package com.koalaswap.chat.dto;
 
+import com.koalaswap.chat.entity.Message;
 import com.koalaswap.chat.model.MessageType;
 import com.koalaswap.chat.model.SystemEvent;
 
@@ -15,5 +16,13 @@ public record MessageResponse(
         String imageUrl,
         SystemEvent systemEvent,
         String meta,
-        Instant createdAt
-) {}
+        Instant createdAt,
+        Long seq            // 会话内序号（单调递增），客户端据此检测缺口并用 afterSeq 增量同步
+) {
+    public static MessageResponse of(Message m) {
+        return new MessageResponse(
+                m.getId(), m.getType(), m.getSenderId(), m.getBody(), m.getImageUrl(),
+                m.getSystemEvent(), m.getMeta(), m.getCreatedAt(), m.getSeq()
+        );
+    }
+}
@@ -6,6 +6,7 @@ import com.koalaswap.chat.model.SystemEvent;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Generated;
 import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -27,6 +28,11 @@ public class Message {
     @Column(name = "conversation_id", nullable = false, columnDefinition = "uuid")
     private UUID conversationId;
 
+    /** 会话内序号：由插入触发器分配（v2.3），INSERT ... RETURNING 读回 */
+    @Generated
+    @Column(name = "seq", insertable = false, updatable = false)
+    private Long seq;
+
     @Enumerated(EnumType.STRING)
     @JdbcTypeCode(SqlTypes.NAMED_ENUM)                   // 与 order-service 一致
     @Column(name = "type", nullable = false, columnDefinition = "message_type")
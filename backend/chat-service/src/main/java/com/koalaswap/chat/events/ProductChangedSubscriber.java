@@ -0,0 +1,41 @@
+package com.koalaswap.chat.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koalaswap.chat.client.ProductClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 订阅 product-service 的商品变更通知（默认频道 product:changed），
+ * 失效对应商品的 brief 缓存；消息体：{"productId": "...", "reason": "..."}
+ */
+@Component
+public class ProductChangedSubscriber implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(ProductChangedSubscriber.class);
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final ProductClient productClient;
+
+    public ProductChangedSubscriber(ProductClient productClient) {
+        this.productClient = productClient;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            JsonNode node = om.readTree(message.getBody());
+            String productId = node.path("productId").asText(null);
+            if (productId != null) {
+                productClient.invalidate(UUID.fromString(productId));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to process product changed message: {}", e.toString());
+        }
+    }
+}
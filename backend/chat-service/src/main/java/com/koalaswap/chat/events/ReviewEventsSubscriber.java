@@ -2,19 +2,23 @@ package com.koalaswap.chat.events;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.koalaswap.chat.service.ChatDomainService;
+import com.koalaswap.chat.service.SystemEventBuffer;
+import com.koalaswap.chat.service.SystemMessageCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.stereotype.Component;
 
 @Component
 public class ReviewEventsSubscriber implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(ReviewEventsSubscriber.class);
 
     private final ObjectMapper om;
-    private final ChatDomainService chatDomainService;
+    private final SystemEventBuffer buffer;
 
-    public ReviewEventsSubscriber(ChatDomainService chatDomainService) {
-        this.chatDomainService = chatDomainService;
+    public ReviewEventsSubscriber(SystemEventBuffer buffer) {
+        this.buffer = buffer;
         this.om = new ObjectMapper();
         // 注册 JavaTimeModule 以支持 Java 8 时间类型
         this.om.registerModule(new JavaTimeModule());
@@ -23,21 +27,13 @@ public class ReviewEventsSubscriber implements MessageListener {
     @Override
     public void onMessage(Message message, byte[] pattern) {
         try {
-            String channel = new String(message.getChannel());
-            String body = new String(message.getBody());
+            ReviewEvent event = om.readValue(message.getBody(), ReviewEvent.class);
+            log.debug("review event received: orderId={}, reviewerId={}", event.orderId(), event.reviewerId());
 
-            System.out.println("[ReviewEventsSubscriber] Received message on channel: " + channel);
-            System.out.println("[ReviewEventsSubscriber] Message body: " + body);
-
-            if ("review-events".equals(channel)) {
-                ReviewEvent event = om.readValue(body, ReviewEvent.class);
-                System.out.println("[ReviewEventsSubscriber] Parsed ReviewEvent: " + event);
-
-                chatDomainService.appendSystemMessageForReviewEvent(event);
-            }
+            // 只入队：由 SystemEventBuffer 按 (orderId, reviewerId) 去重后微批落库并推送 WS
+            buffer.submit(SystemMessageCommand.fromReview(event));
         } catch (Exception e) {
-            System.err.println("[ReviewEventsSubscriber] Failed to process message: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("failed to process review event: {}", e.toString());
         }
     }
-}
\ No newline at end of file
+}
@@ -8,9 +8,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
+/** 会话列表读模型：只读事务（可路由到只读副本） */
+@Transactional(readOnly = true)
 public interface ConversationReadRepository extends Repository<com.koalaswap.chat.entity.Conversation, UUID> {
 
     @Query("""
@@ -35,4 +40,21 @@ public interface ConversationReadRepository extends Repository<com.koalaswap.cha
             @Param("onlyPinned") boolean onlyPinned,
             Pageable pageable
     );
+
+    /** 按 id 批量取当前用户视角的列表行（Redis 索引分页后补全数据；顺序由调用方按索引重排） */
+    @Query("""
+      select new com.koalaswap.chat.dto.ConversationListItem(
+        c.id, c.productId, c.orderId, c.buyerId, c.sellerId,
+        case when c.buyerId = :userId then c.sellerId else c.buyerId end,
+        cp.unreadCount, cp.archived, cp.pinnedAt,
+        c.orderStatusCache, c.productFirstImage, c.lastMessageAt, c.lastMessagePreview,
+        null, null, null, null, null
+      )
+      from ConversationParticipant cp
+      join cp.conversationRef c
+      where cp.userId = :userId
+        and cp.deletedAt is null
+        and c.id in :ids
+    """)
+    List<ConversationListItem> findItemsForUser(@Param("userId") UUID userId, @Param("ids") Collection<UUID> ids);
 }
@@ -3,10 +3,61 @@ package com.koalaswap.chat.repository;
 
 import com.koalaswap.chat.entity.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface ConversationRepository extends JpaRepository<Conversation, UUID> {
     Optional<Conversation> findByProductIdAndBuyerIdAndSellerId(UUID productId, UUID buyerId, UUID sellerId);
+
+    /** 只取最后一条消息 id（markRead 未带 lastMessageId 时使用，不加载整行） */
+    @Query("select c.lastMessageId from Conversation c where c.id = :id")
+    Optional<UUID> findLastMessageIdById(@Param("id") UUID id);
+
+    /** 会话双方及本次是否计入其角标（列名以带引号的别名返回，按属性名映射） */
+    interface Parties {
+        UUID getBuyerId();
+        UUID getSellerId();
+        /** 买家未读已 +1 且会话未被其软删 */
+        Boolean getBuyerBumped();
+        /** 卖家未读已 +1 且会话未被其软删 */
+        Boolean getSellerBumped();
+    }
+
+    /**
+     * 新消息落库后的会话维护（一条语句）：
+     * - 快照：直接覆盖。插入消息时 seq 触发器已锁住会话行，同一会话的消息按 seq 顺序串行提交，快照总是最新一条
+     * - 未读：除发送者外的参与者 unread_count + 1（数据库内原子自增，无丢失更新）
+     * - 返回会话双方，用于推送收件箱提示；会话不存在时为空
+     * - 返回双方是否计入角标：被 +1 且未软删（软删的会话不计入角标，见 UnreadTotalService）
+     * 两个 UPDATE 在同一语句的 CTE 中执行，最终 SELECT 读取的是语句开始时的快照（buyer/seller 不变，不受影响）。
+     */
+    @Query(value = """
+        with snap as (
+            update conversations
+               set last_message_id = :messageId,
+                   last_message_at = :messageAt,
+                   last_message_preview = :preview
+             where id = :conversationId
+        ), bump as (
+            update conversation_participants
+               set unread_count = unread_count + 1
+             where conversation_id = :conversationId
+               and user_id <> :senderId
+            returning user_id, deleted_at is null as visible
+        )
+        select c.buyer_id as "buyerId", c.seller_id as "sellerId",
+               exists (select 1 from bump b where b.user_id = c.buyer_id and b.visible) as "buyerBumped",
+               exists (select 1 from bump b where b.user_id = c.seller_id and b.visible) as "sellerBumped"
+        from conversations c
+        where c.id = :conversationId
+        """, nativeQuery = true)
+    Optional<Parties> recordMessage(@Param("conversationId") UUID conversationId,
+                                    @Param("messageId") UUID messageId,
+                                    @Param("messageAt") Instant messageAt,
+                                    @Param("preview") String preview,
+                                    @Param("senderId") UUID senderId);
 }
@@ -1,14 +1,55 @@
 // src/main/java/com/koalaswap/chat/repository/MessageRepository.java
 package com.koalaswap.chat.repository;
 
+import com.koalaswap.chat.dto.MessageResponse;
 import com.koalaswap.chat.entity.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface MessageRepository extends JpaRepository<Message, UUID> {
     Page<Message> findByConversationIdOrderByCreatedAtAsc(UUID conversationId, Pageable pageable);
     Message findTop1ByConversationIdOrderByCreatedAtDesc(UUID conversationId);
+
+    // ----- 以下均直接投影为 MessageResponse（不加载实体），按 seq 走 uq_messages_conv_seq -----
+
+    /** 增量同步：seq 之后的消息（升序） */
+    @Query("""
+        select new com.koalaswap.chat.dto.MessageResponse(
+            m.id, m.type, m.senderId, m.body, m.imageUrl, m.systemEvent, m.meta, m.createdAt, m.seq)
+        from Message m
+        where m.conversationId = :conversationId and m.seq > :afterSeq
+        order by m.seq asc
+    """)
+    List<MessageResponse> findAfterSeq(@Param("conversationId") UUID conversationId,
+                                       @Param("afterSeq") long afterSeq,
+                                       Pageable pageable);
+
+    /** 历史（最新一页）：倒序，Slice 多取一行判断 hasNext，不发 count */
+    @Query("""
+        select new com.koalaswap.chat.dto.MessageResponse(
+            m.id, m.type, m.senderId, m.body, m.imageUrl, m.systemEvent, m.meta, m.createdAt, m.seq)
+        from Message m
+        where m.conversationId = :conversationId
+        order by m.seq desc
+    """)
+    Slice<MessageResponse> findLatest(@Param("conversationId") UUID conversationId, Pageable pageable);
+
+    /** 历史（更早一页）：seq < before，倒序 */
+    @Query("""
+        select new com.koalaswap.chat.dto.MessageResponse(
+            m.id, m.type, m.senderId, m.body, m.imageUrl, m.systemEvent, m.meta, m.createdAt, m.seq)
+        from Message m
+        where m.conversationId = :conversationId and m.seq < :beforeSeq
+        order by m.seq desc
+    """)
+    Slice<MessageResponse> findBeforeSeq(@Param("conversationId") UUID conversationId,
+                                         @Param("beforeSeq") long beforeSeq,
+                                         Pageable pageable);
 }
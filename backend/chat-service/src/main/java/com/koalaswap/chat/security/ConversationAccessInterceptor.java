@@ -1,7 +1,6 @@
 // src/main/java/com/koalaswap/chat/security/ConversationAccessInterceptor.java
 package com.koalaswap.chat.security;
 
-import com.koalaswap.chat.repository.ConversationParticipantRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Component;
@@ -16,11 +15,11 @@ import java.util.regex.Pattern;
 @Component
 public class ConversationAccessInterceptor implements HandlerInterceptor, WebMvcConfigurer {
 
-    private final ConversationParticipantRepository partRepo;
+    private final MembershipCache memberships;
     private static final Pattern P = Pattern.compile("^/api/chat/conversations/([0-9a-fA-F\\-]{36})(/.*)?$");
 
-    public ConversationAccessInterceptor(ConversationParticipantRepository partRepo) {
-        this.partRepo = partRepo;
+    public ConversationAccessInterceptor(MembershipCache memberships) {
+        this.memberships = memberships;
     }
 
     @Override
@@ -41,8 +40,7 @@ public class ConversationAccessInterceptor implements HandlerInterceptor, WebMvc
         }
 
         UUID convId = UUID.fromString(m.group(1));
-        boolean present = partRepo.findByConversationIdAndUserId(convId, uid).isPresent();
-        if (!present) {
+        if (memberships.find(convId, uid).isEmpty()) {
             res.setStatus(HttpServletResponse.SC_FORBIDDEN); // 403
             return false;
         }
@@ -0,0 +1,11 @@
+// src/main/java/com/koalaswap/chat/security/ConversationMembership.java
+package com.koalaswap.chat.security;
+
+import com.koalaswap.chat.model.ParticipantRole;
+
+import java.util.UUID;
+
+/**
+ * 会话成员身份（MembershipCache 的缓存值）
+ */
+public record ConversationMembership(UUID conversationId, UUID userId, ParticipantRole role) {}
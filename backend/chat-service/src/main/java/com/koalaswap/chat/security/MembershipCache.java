@@ -0,0 +1,55 @@
+// src/main/java/com/koalaswap/chat/security/MembershipCache.java
+package com.koalaswap.chat.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.koalaswap.chat.entity.ConversationParticipant;
+import com.koalaswap.chat.repository.ConversationParticipantRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 会话成员关系缓存：(conversationId, userId) -> 角色
+ * - 只缓存“是成员”；不是成员不缓存，新建的会话不会被旧的否定结果挡住
+ * - 成员行只会软删（deleted_at），不会物理删除，所以各副本缓存不会误放行非成员
+ * - 新建会话时写入，软删时失效；其余情况靠过期时间兜底
+ */
+@Component
+public class MembershipCache {
+
+    private record Key(UUID conversationId, UUID userId) {}
+
+    private final ConversationParticipantRepository partRepo;
+    private final Cache<Key, ConversationMembership> cache;
+
+    public MembershipCache(ConversationParticipantRepository partRepo,
+                           @Value("${chat.membership-cache.ttl:PT10M}") Duration ttl,
+                           @Value("${chat.membership-cache.max-size:100000}") long maxSize) {
+        this.partRepo = partRepo;
+        this.cache = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+    }
+
+    /** 查询成员身份：命中缓存不访问数据库；未命中查一次并缓存 */
+    public Optional<ConversationMembership> find(UUID conversationId, UUID userId) {
+        var key = new Key(conversationId, userId);
+        var hit = cache.getIfPresent(key);
+        if (hit != null) return Optional.of(hit);
+        var loaded = partRepo.findByConversationIdAndUserId(conversationId, userId)
+                .map(p -> new ConversationMembership(p.getConversationId(), p.getUserId(), p.getRole()));
+        loaded.ifPresent(m -> cache.put(key, m));
+        return loaded;
+    }
+
+    public void put(ConversationParticipant p) {
+        cache.put(new Key(p.getConversationId(), p.getUserId()),
+                new ConversationMembership(p.getConversationId(), p.getUserId(), p.getRole()));
+    }
+
+    public void invalidate(UUID conversationId, UUID userId) {
+        cache.invalidate(new Key(conversationId, userId));
+    }
+}
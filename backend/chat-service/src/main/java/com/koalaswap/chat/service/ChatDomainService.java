@@ -3,30 +3,106 @@ package com.koalaswap.chat.service;
 import com.koalaswap.chat.entity.*;
 import com.koalaswap.chat.model.*;
 import com.koalaswap.chat.repository.*;
-import com.koalaswap.chat.events.OrderStatusEvent;
-import com.koalaswap.chat.events.ReviewEvent;           // ✅ 新增
 import com.koalaswap.chat.dto.MessageResponse;           // ✅ 新增
 import com.koalaswap.chat.dto.ConversationDetailResponse; // ✅ 新增
 import com.koalaswap.chat.client.ProductClient;         // ✅ 新增
 import com.koalaswap.chat.client.OrderClient;           // ✅ 新增
 import com.koalaswap.chat.client.UserClient;            // ✅ 新增
+import com.koalaswap.chat.security.MembershipCache;
 import com.koalaswap.chat.ws.WsPublisher;               // ✅ 新增
 import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
-import java.util.Map;                                    // ✅ 新增
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class ChatDomainService {
 
+    /** messages.conversation_id 的外键约束名（PostgreSQL 默认命名） */
+    private static final String CONVERSATION_FK = "messages_conversation_id_fkey";
+
     /** 系统用户ID - 用于发送系统消息（订单状态变更等） */
     private static final UUID SYSTEM_USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
 
+    private static final String EXISTING_DEDUP_KEYS_SQL =
+            "select dedup_key from messages where dedup_key = any(?)";
+    private static final String FIND_CONVERSATIONS_SQL = """
+        select c.id, c.product_id, c.buyer_id, c.seller_id
+        from conversations c
+        join unnest(?, ?, ?) as t(product_id, buyer_id, seller_id)
+          on c.product_id = t.product_id and c.buyer_id = t.buyer_id and c.seller_id = t.seller_id
+        """;
+    private static final String INSERT_SYSTEM_MESSAGE_SQL = """
+        insert into messages (id, conversation_id, type, sender_id, system_event, body, meta, created_at, dedup_key)
+        values (?, ?, 'SYSTEM', ?, cast(? as system_event), ?, cast(? as jsonb), ?, ?)
+        on conflict (dedup_key) where dedup_key is not null do nothing
+        """;
+    private static final String SEQ_BY_IDS_SQL = "select id, seq from messages where id = any(?)";
+    /**
+     * 系统消息后的会话快照；事件可能乱序到达（重投、多副本），两部分都不能倒退：
+     * - last_message_*：仅当事件不早于当前快照时覆盖
+     * - order_status_cache：只沿生命周期前进（见 advance），终态不再变化
+     */
+    private static final String SYSTEM_SNAPSHOT_SQL = """
+        update conversations c
+        set last_message_id = case when c.last_message_at is null or c.last_message_at <= s.at
+                                   then s.message_id else c.last_message_id end,
+            last_message_preview = case when c.last_message_at is null or c.last_message_at <= s.at
+                                        then s.preview else c.last_message_preview end,
+            last_message_at = greatest(c.last_message_at, s.at),
+            order_id = coalesce(c.order_id, s.order_id),
+            order_status_cache = case
+                when s.status is null then c.order_status_cache
+                when c.order_status_cache is null then s.status
+                when c.order_status_cache in ('COMPLETED', 'CANCELLED') then c.order_status_cache
+                when s.status > c.order_status_cache then s.status
+                else c.order_status_cache end
+        from (values (cast(? as uuid), cast(? as timestamp), cast(? as text),
+                      cast(? as uuid), cast(? as order_status), cast(? as uuid)))
+             as s(message_id, at, preview, order_id, status, conversation_id)
+        where c.id = s.conversation_id
+        """;
+    /** 各会话参与者未读 +n（一条语句）；返回被自增的用户及是否计入角标（未软删） */
+    private static final String BUMP_UNREAD_SQL = """
+        update conversation_participants cp
+           set unread_count = cp.unread_count + b.n
+          from unnest(?, ?) as b(conversation_id, n)
+         where cp.conversation_id = b.conversation_id
+        returning cp.user_id, b.n, cp.deleted_at is null
+        """;
+
+    /** 会话三元组（系统事件按它定位会话） */
+    private record Triplet(UUID productId, UUID buyerId, UUID sellerId) {
+        static Triplet of(SystemMessageCommand c) { return new Triplet(c.productId(), c.buyerId(), c.sellerId()); }
+    }
+
+    private record ConvRef(UUID id, UUID buyerId, UUID sellerId) {}
+
+    private record SystemRow(UUID id, ConvRef conv, SystemMessageCommand cmd) {}
+
     private final ConversationRepository convRepo;
     private final ConversationParticipantRepository partRepo;
     private final MessageRepository msgRepo;
@@ -34,6 +110,11 @@ public class ChatDomainService {
     private final ProductClient productClient;          // ✅ 新增
     private final OrderClient orderClient;              // ✅ 新增
     private final UserClient userClient;                // ✅ 新增
+    private final ReadReceiptBuffer readReceipts;
+    private final MembershipCache memberships;
+    private final JdbcTemplate jdbc;
+    private final InboxIndexService inbox;
+    private final UnreadTotalService unreadTotals;
 
     public ChatDomainService(ConversationRepository c,
                              ConversationParticipantRepository p,
@@ -41,7 +122,12 @@ public class ChatDomainService {
                              WsPublisher wsPublisher,    // ✅ 新增
                              ProductClient productClient, // ✅ 新增
                              OrderClient orderClient,    // ✅ 新增
-                             UserClient userClient) {    // ✅ 新增
+                             UserClient userClient,      // ✅ 新增
+                             ReadReceiptBuffer readReceipts,
+                             MembershipCache memberships,
+                             JdbcTemplate jdbc,
+                             InboxIndexService inbox,
+                             UnreadTotalService unreadTotals) {
         this.convRepo = c;
         this.partRepo = p;
         this.msgRepo = m;
@@ -49,6 +135,11 @@ public class ChatDomainService {
         this.productClient = productClient;              // ✅ 新增
         this.orderClient = orderClient;                  // ✅ 新增
         this.userClient = userClient;                    // ✅ 新增
+        this.readReceipts = readReceipts;
+        this.memberships = memberships;
+        this.jdbc = jdbc;
+        this.inbox = inbox;
+        this.unreadTotals = unreadTotals;
     }
 
     @Transactional
@@ -80,18 +171,21 @@ public class ChatDomainService {
                         conv.setProductFirstImage(productFirstImage);
                     }
                     Conversation saved = convRepo.save(conv);
-                    partRepo.save(new ConversationParticipant(saved.getId(), buyerId, ParticipantRole.BUYER));
-                    partRepo.save(new ConversationParticipant(saved.getId(), sellerId, ParticipantRole.SELLER));
+                    var buyer = partRepo.save(new ConversationParticipant(saved.getId(), buyerId, ParticipantRole.BUYER));
+                    var seller = partRepo.save(new ConversationParticipant(saved.getId(), sellerId, ParticipantRole.SELLER));
+                    // 提交后预热成员缓存：创建后紧接着的详情/发消息请求不再查成员表
+                    afterCommit(() -> { memberships.put(buyer); memberships.put(seller); });
+                    inbox.add(saved.getId(), Instant.now(), buyerId, sellerId);
                     return saved;
                 });
     }
 
-    /** 发送文本/图片消息；维护快照/未读，并推送会话消息 + 收件箱变化提示 */
+    /**
+     * 发送文本/图片消息；维护快照/未读，并推送会话消息 + 收件箱变化提示
+     * 每条消息两条 SQL：INSERT 消息 + recordMessage（快照条件更新 + 未读原子自增）
+     */
     @Transactional
     public Message sendMessage(UUID conversationId, UUID senderId, MessageType type, String body, String imageUrl) {
-        Conversation conv = convRepo.findById(conversationId)
-                .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
-
         Message m = new Message();
         m.setConversationId(conversationId);
         m.setType(type);
@@ -100,47 +194,40 @@ public class ChatDomainService {
         m.setImageUrl(imageUrl);
         m.setCreatedAt(Instant.now());
 
-        Message saved = msgRepo.save(m);
+        Message saved;
+        try {
+            saved = msgRepo.saveAndFlush(m);
+        } catch (DataIntegrityViolationException e) {
+            // 仅 messages.conversation_id 外键失败表示会话不存在；其余约束（如 sender_id）原样抛出
+            if (!violates(e, CONVERSATION_FK)) throw e;
+            throw new EntityNotFoundException("Conversation not found");
+        }
 
-        // 更新会话快照
-        conv.setLastMessageId(saved.getId());
-        conv.setLastMessageAt(saved.getCreatedAt());
         String preview = switch (type) {
             case TEXT -> body == null ? "" : (body.length() > 120 ? body.substring(0, 120) : body);
             case IMAGE -> "[Image]";
             case SYSTEM -> "[System]";
         };
-        conv.setLastMessagePreview(preview);
-        convRepo.save(conv);
-
-        // 未读
-        var buyer = partRepo.findByConversationIdAndUserId(conversationId, conv.getBuyerId()).orElseThrow();
-        var seller = partRepo.findByConversationIdAndUserId(conversationId, conv.getSellerId()).orElseThrow();
-        if (senderId != null) {
-            if (senderId.equals(conv.getBuyerId())) {
-                seller.setUnreadCount(seller.getUnreadCount() + 1);
-                partRepo.save(seller);
-            } else if (senderId.equals(conv.getSellerId())) {
-                buyer.setUnreadCount(buyer.getUnreadCount() + 1);
-                partRepo.save(buyer);
-            }
-        } else {
-            buyer.setUnreadCount(buyer.getUnreadCount() + 1);
-            seller.setUnreadCount(seller.getUnreadCount() + 1);
-            partRepo.save(buyer); partRepo.save(seller);
-        }
-
-        // ✅ 推送会话新消息
-        var dto = new MessageResponse(
-                saved.getId(), saved.getType(), saved.getSenderId(), saved.getBody(),
-                saved.getImageUrl(), saved.getSystemEvent(), saved.getMeta(), saved.getCreatedAt()
-        );
-        ws.publishNewMessage(conversationId, dto);
+        // 无发送者按系统消息处理：系统用户不是参与者，双方未读都会 +1
+        var conv = convRepo.recordMessage(conversationId, saved.getId(), saved.getCreatedAt(), preview,
+                        senderId != null ? senderId : SYSTEM_USER_ID)
+                .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
 
-        // ✅ 推送“收件箱变化”到双方个人队列（列表据此刷新）
-        Map<String, Object> hint = Map.of("kind", "CONV_UPDATED", "conversationId", conversationId.toString());
-        ws.publishMyInboxChanged(conv.getBuyerId(), hint);
-        ws.publishMyInboxChanged(conv.getSellerId(), hint);
+        // ✅ 推送会话新消息（唯一一次推送；提交后再推，客户端看到 seq=N 时 ≤N 的消息均已可查）
+        var dto = MessageResponse.of(saved);
+        UUID buyerId = conv.getBuyerId(), sellerId = conv.getSellerId();
+        inbox.touch(conversationId, saved.getCreatedAt(), buyerId, sellerId);
+        // 角标总数：只给 recordMessage 实际 +1 且未软删的一方自增（发送者自己、已删除会话的一方不计）
+        unreadTotals.increment(1,
+                Boolean.TRUE.equals(conv.getBuyerBumped()) ? buyerId : null,
+                Boolean.TRUE.equals(conv.getSellerBumped()) ? sellerId : null);
+        afterCommit(() -> {
+            ws.publishNewMessage(conversationId, dto);
+
+            // ✅ 登记“收件箱变化”（窗口内合并，按用户一帧推送，携带未读数）
+            ws.hintInboxChanged(buyerId, conversationId);
+            ws.hintInboxChanged(sellerId, conversationId);
+        });
 
         return saved;
     }
@@ -150,88 +237,147 @@ public class ChatDomainService {
         return msgRepo.findByConversationIdOrderByCreatedAtAsc(conversationId, pageable);
     }
 
-    /** 标记已读：清零未读并更新 last_read_message_id；保持返回 UUID */
-    @Transactional
+    /** 增量同步：返回 seq > afterSeq 的消息（升序，最多 limit 条） */
+    @Transactional(readOnly = true)
+    public List<MessageResponse> messagesAfter(UUID conversationId, long afterSeq, int limit) {
+        return msgRepo.findAfterSeq(conversationId, afterSeq, PageRequest.of(0, limit));
+    }
+
+    /** 历史游标翻页：before 为空取最新一页，否则取 seq < before 的一页（均为倒序） */
+    @Transactional(readOnly = true)
+    public Slice<MessageResponse> messagesBefore(UUID conversationId, Long before, int limit) {
+        var page = PageRequest.of(0, limit);
+        return before == null
+                ? msgRepo.findLatest(conversationId, page)
+                : msgRepo.findBeforeSeq(conversationId, before, page);
+    }
+
+    /**
+     * 标记已读：只登记到 ReadReceiptBuffer，由后台批量落库（清零/重算未读并更新 last_read_message_id）；
+     * 返回读到的 messageId，调用方据此立即推送读回执
+     */
     public UUID markRead(UUID conversationId, UUID userId, UUID lastMessageId) {
-        Conversation conv = convRepo.findById(conversationId)
-                .orElseThrow(() -> new EntityNotFoundException("Conversation not found"));
-        ConversationParticipant me = partRepo.findByConversationIdAndUserId(conversationId, userId)
-                .orElseThrow(() -> new EntityNotFoundException("Participant not found"));
-        UUID lm = (lastMessageId != null) ? lastMessageId : conv.getLastMessageId();
-        me.setLastReadMessageId(lm);
-        me.setUnreadCount(0);
-        partRepo.save(me);
+        UUID lm = (lastMessageId != null) ? lastMessageId
+                : convRepo.findLastMessageIdById(conversationId).orElse(null);
+        readReceipts.record(conversationId, userId, lm);
         return lm;
     }
 
-    /** 订单事件 -> SYSTEM 消息；并推送会话消息 + 收件箱变化提示 */
+    /**
+     * 订单/评价事件 -> SYSTEM 消息（微批，由 SystemEventBuffer 调用）；一个事务内完成：
+     * 1) 按 dedup_key 去掉已落库的事件（重放/多副本重复消费不会产生第二条消息）
+     * 2) 一条 SQL 解析全部会话；订单事件找不到会话时新建
+     * 3) JDBC batch 插入消息（ON CONFLICT 兜底并发竞争），读回触发器分配的 seq
+     * 4) 每个会话一条快照 UPDATE；全部会话的未读一条 UPDATE（返回需计入角标的用户）
+     * 提交后推送会话新消息 + 收件箱变化提示。返回实际插入条数
+     */
     @Transactional
-    public Message appendSystemMessageForOrderEvent(OrderStatusEvent evt) {
-        System.out.println("[ChatDomainService] Handling order event: orderId=" + evt.orderId +
-                         ", productId=" + evt.productId +
-                         ", buyerId=" + evt.buyerId +
-                         ", sellerId=" + evt.sellerId +
-                         ", status=" + evt.newStatus);
-
-        Conversation conv = convRepo.findByProductIdAndBuyerIdAndSellerId(evt.productId, evt.buyerId, evt.sellerId)
-                .orElseGet(() -> {
-                    System.out.println("[ChatDomainService] Conversation not found, creating new one");
-                    Conversation c = new Conversation(evt.productId, evt.orderId, evt.buyerId, evt.sellerId, evt.sellerId);
-                    c.setOrderStatusCache(evt.newStatus);
-                    return convRepo.save(c);
-                });
-
-        System.out.println("[ChatDomainService] Found conversation: id=" + conv.getId() +
-                         ", orderId=" + conv.getOrderId() +
-                         ", orderStatusCache=" + conv.getOrderStatusCache());
-
-        if (conv.getOrderId() == null && evt.orderId != null) {
-            System.out.println("[ChatDomainService] Set conversation orderId: " + evt.orderId);
-            conv.setOrderId(evt.orderId);
+    public int appendSystemMessages(List<SystemMessageCommand> commands) {
+        if (commands.isEmpty()) return 0;
+
+        Set<String> done = new HashSet<>(jdbc.query(EXISTING_DEDUP_KEYS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text",
+                        commands.stream().map(SystemMessageCommand::dedupKey).toArray())),
+                (rs, i) -> rs.getString(1)));
+        var todo = commands.stream().filter(c -> !done.contains(c.dedupKey())).toList();
+        if (todo.isEmpty()) return 0;
+
+        Map<Triplet, ConvRef> convs = findConversations(todo);
+        boolean created = false;
+        for (var c : todo) {
+            var key = Triplet.of(c);
+            if (convs.containsKey(key) || !c.createConversation()) continue;
+            var conv = getOrCreateConversation(c.productId(), c.orderId(), c.buyerId(), c.sellerId(), c.sellerId(), null);
+            convs.put(key, new ConvRef(conv.getId(), conv.getBuyerId(), conv.getSellerId()));
+            created = true;
         }
+        if (created) convRepo.flush(); // JDBC 插入消息前先把新会话/参与者写出
+
+        // 会话按 id、会话内按发生时间排序：触发器加会话行锁的顺序在各副本间一致，seq 与发生顺序一致
+        List<SystemRow> rows = todo.stream()
+                .filter(c -> convs.containsKey(Triplet.of(c)))
+                .map(c -> new SystemRow(UUID.randomUUID(), convs.get(Triplet.of(c)), c))
+                .sorted(Comparator.comparing((SystemRow r) -> r.conv().id())
+                        .thenComparing(r -> r.cmd().occurredAt()))
+                .toList();
+        if (rows.isEmpty()) return 0;
+
+        jdbc.batchUpdate(INSERT_SYSTEM_MESSAGE_SQL, rows, rows.size(), (ps, r) -> {
+            ps.setObject(1, r.id());
+            ps.setObject(2, r.conv().id());
+            ps.setObject(3, SYSTEM_USER_ID);
+            ps.setString(4, r.cmd().event().name());
+            ps.setString(5, r.cmd().body());
+            ps.setString(6, r.cmd().meta());
+            ps.setObject(7, LocalDateTime.ofInstant(r.cmd().occurredAt(), ZoneOffset.UTC));
+            ps.setString(8, r.cmd().dedupKey());
+        });
+
+        // 读回真正插入的行（并发竞争时被 ON CONFLICT 跳过的不在其中）及其 seq
+        Map<UUID, Long> seqs = new HashMap<>();
+        jdbc.query(SEQ_BY_IDS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", rows.stream().map(SystemRow::id).toArray())),
+                rs -> { seqs.put(rs.getObject(1, UUID.class), rs.getLong(2)); });
+        var inserted = rows.stream().filter(r -> seqs.containsKey(r.id())).toList();
+        if (inserted.isEmpty()) return 0;
+
+        Map<ConvRef, List<SystemRow>> byConv = inserted.stream()
+                .collect(Collectors.groupingBy(SystemRow::conv, LinkedHashMap::new, Collectors.toList()));
+        List<Object[]> snapshots = new ArrayList<>();
+        List<UUID> bumpConvIds = new ArrayList<>();
+        List<Integer> bumpCounts = new ArrayList<>();
+        byConv.forEach((conv, list) -> {
+            var last = list.get(list.size() - 1).cmd();
+            var status = list.stream().map(r -> r.cmd().orderStatus()).filter(Objects::nonNull)
+                    .reduce(ChatDomainService::advance).map(Enum::name).orElse(null);
+            snapshots.add(new Object[]{list.get(list.size() - 1).id(),
+                    LocalDateTime.ofInstant(last.occurredAt(), ZoneOffset.UTC), last.preview(),
+                    last.orderId(), status, conv.id()});
+            // 系统用户不是参与者，双方未读都 +n
+            bumpConvIds.add(conv.id());
+            bumpCounts.add(list.size());
+            inbox.touch(conv.id(), last.occurredAt(), conv.buyerId(), conv.sellerId());
+        });
+        jdbc.batchUpdate(SYSTEM_SNAPSHOT_SQL, snapshots);
+
+        // 角标总数：只给实际被自增且未软删的参与者累加（同一用户可能涉及多个会话）
+        Map<UUID, Integer> badgeBumps = new HashMap<>();
+        jdbc.query(BUMP_UNREAD_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", bumpConvIds.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("int4", bumpCounts.toArray()));
+        }, rs -> {
+            if (rs.getBoolean(3)) badgeBumps.merge(rs.getObject(1, UUID.class), rs.getInt(2), Integer::sum);
+        });
+        badgeBumps.forEach((uid, n) -> unreadTotals.increment(n, uid));
+
+        afterCommit(() -> {
+            for (var r : inserted) {
+                ws.publishNewMessage(r.conv().id(), new MessageResponse(
+                        r.id(), MessageType.SYSTEM, SYSTEM_USER_ID, r.cmd().body(), null,
+                        r.cmd().event(), r.cmd().meta(), r.cmd().occurredAt(), seqs.get(r.id())));
+            }
+            // ✅ 登记收件箱变化（驱动列表状态徽标刷新；窗口内合并推送）
+            byConv.keySet().forEach(conv -> {
+                ws.hintInboxChanged(conv.buyerId(), conv.id());
+                ws.hintInboxChanged(conv.sellerId(), conv.id());
+            });
+        });
+        return inserted.size();
+    }
 
-        Message m = new Message();
-        m.setConversationId(conv.getId());
-        m.setType(MessageType.SYSTEM);
-        m.setSenderId(SYSTEM_USER_ID); // 使用系统用户ID而不是null
-        m.setSystemEvent(mapSystemEvent(evt.newStatus));
-        m.setBody(systemBodyFor(evt.newStatus));
-        m.setMeta("{\"orderId\":\"" + evt.orderId + "\",\"newStatus\":\"" + evt.newStatus + "\"}");
-        m.setCreatedAt(evt.occurredAt != null ? evt.occurredAt : Instant.now());
-        Message saved = msgRepo.save(m);
-
-        // 会话快照同步订单状态
-        conv.setOrderStatusCache(evt.newStatus);
-        conv.setLastMessageId(saved.getId());
-        conv.setLastMessageAt(saved.getCreatedAt());
-        conv.setLastMessagePreview("[System] " + saved.getSystemEvent());
-        Conversation finalConv = convRepo.save(conv);
-        System.out.println("[ChatDomainService] Saved conversation: id=" + finalConv.getId() +
-                         ", orderId=" + finalConv.getOrderId() +
-                         ", orderStatusCache=" + finalConv.getOrderStatusCache());
-
-        // 未读（无则建）
-        var buyer = partRepo.findByConversationIdAndUserId(conv.getId(), conv.getBuyerId())
-                .orElseGet(() -> partRepo.save(new ConversationParticipant(conv.getId(), conv.getBuyerId(), ParticipantRole.BUYER)));
-        var seller = partRepo.findByConversationIdAndUserId(conv.getId(), conv.getSellerId())
-                .orElseGet(() -> partRepo.save(new ConversationParticipant(conv.getId(), conv.getSellerId(), ParticipantRole.SELLER)));
-        buyer.setUnreadCount(buyer.getUnreadCount() + 1);
-        seller.setUnreadCount(seller.getUnreadCount() + 1);
-        partRepo.save(buyer); partRepo.save(seller);
-
-        // ✅ 推送会话新消息（SYSTEM）
-        var dto = new MessageResponse(
-                saved.getId(), saved.getType(), saved.getSenderId(), saved.getBody(),
-                saved.getImageUrl(), saved.getSystemEvent(), saved.getMeta(), saved.getCreatedAt()
-        );
-        ws.publishNewMessage(conv.getId(), dto);
-
-        // ✅ 推送“收件箱变化”到双方个人队列（驱动列表状态徽标立即刷新）
-        Map<String, Object> hint = Map.of("kind", "CONV_UPDATED", "conversationId", conv.getId().toString());
-        ws.publishMyInboxChanged(conv.getBuyerId(), hint);
-        ws.publishMyInboxChanged(conv.getSellerId(), hint);
-
-        return saved;
+    /** 一条 SQL 按 (product_id, buyer_id, seller_id) 批量查会话（走 uq_conv_unique_triplet） */
+    private Map<Triplet, ConvRef> findConversations(List<SystemMessageCommand> commands) {
+        var triplets = commands.stream().map(Triplet::of).distinct().toList();
+        Map<Triplet, ConvRef> out = new HashMap<>();
+        jdbc.query(FIND_CONVERSATIONS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", triplets.stream().map(Triplet::productId).toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", triplets.stream().map(Triplet::buyerId).toArray()));
+            ps.setArray(3, ps.getConnection().createArrayOf("uuid", triplets.stream().map(Triplet::sellerId).toArray()));
+        }, rs -> {
+            var t = new Triplet(rs.getObject(2, UUID.class), rs.getObject(3, UUID.class), rs.getObject(4, UUID.class));
+            out.put(t, new ConvRef(rs.getObject(1, UUID.class), t.buyerId(), t.sellerId()));
+        });
+        return out;
     }
 
     // === 详情聚合（你已有） ===
@@ -338,89 +484,34 @@ public class ChatDomainService {
         );
     }
 
-    private static SystemEvent mapSystemEvent(OrderStatus s) {
-        return switch (s) {
-            case PENDING    -> SystemEvent.ORDER_PLACED;
-            case PAID       -> SystemEvent.PAID;
-            case SHIPPED    -> SystemEvent.SHIPPED;
-            case COMPLETED  -> SystemEvent.COMPLETED;
-            case CANCELLED  -> SystemEvent.CANCELLED;
-        };
-    }
-
-    private static String systemBodyFor(OrderStatus s) {
-        return switch (s) {
-            case PENDING    -> "Order placed";
-            case PAID       -> "Payment received";
-            case SHIPPED    -> "Item shipped";
-            case COMPLETED  -> "Transaction completed";
-            case CANCELLED  -> "Order cancelled";
-        };
+    /**
+     * 订单状态只前进：PENDING → PAID → SHIPPED → COMPLETED，CANCELLED 可由任一未终结状态进入；
+     * COMPLETED/CANCELLED 为终态。与 SYSTEM_SNAPSHOT_SQL 的判定一致（枚举声明顺序即数据库 enum 顺序）
+     */
+    private static OrderStatus advance(OrderStatus current, OrderStatus next) {
+        if (current == OrderStatus.COMPLETED || current == OrderStatus.CANCELLED) return current;
+        return next.compareTo(current) > 0 ? next : current;
     }
 
-    /** 评价事件 -> SYSTEM 消息；并推送会话消息 + 收件箱变化提示 */
-    @Transactional
-    public Message appendSystemMessageForReviewEvent(ReviewEvent evt) {
-        System.out.println("[ChatDomainService] Handling review event: orderId=" + evt.orderId() +
-                         ", reviewerId=" + evt.reviewerId() +
-                         ", reviewerRole=" + evt.reviewerRole());
-
-        Conversation conv = convRepo.findByProductIdAndBuyerIdAndSellerId(evt.productId(), evt.buyerId(), evt.sellerId())
-                .orElse(null);
-
-        if (conv == null) {
-            System.out.println("[ChatDomainService] Conversation not found, skipping review system message");
-            return null;
+    /** 完整性异常是否由指定约束触发 */
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve) return constraint.equalsIgnoreCase(cve.getConstraintName());
         }
+        return false;
+    }
 
-        // 确定系统事件类型
-        SystemEvent systemEvent = "BUYER".equals(evt.reviewerRole()) ? SystemEvent.BUYER_REVIEWED : SystemEvent.SELLER_REVIEWED;
-        String bodyText = "BUYER".equals(evt.reviewerRole()) ? "Buyer has left a review" : "Seller has left a review";
-
-        Message m = new Message();
-        m.setConversationId(conv.getId());
-        m.setType(MessageType.SYSTEM);
-        m.setSenderId(SYSTEM_USER_ID); // 使用系统用户ID
-        m.setSystemEvent(systemEvent);
-        m.setBody(bodyText);
-        m.setMeta("{\"orderId\":\"" + evt.orderId() + "\",\"reviewerId\":\"" + evt.reviewerId() + "\",\"reviewerRole\":\"" + evt.reviewerRole() + "\"}");
-        m.setCreatedAt(evt.occurredAt() != null ? evt.occurredAt() : Instant.now());
-        Message saved = msgRepo.save(m);
-
-        // 更新会话快照
-        conv.setLastMessageId(saved.getId());
-        conv.setLastMessageAt(saved.getCreatedAt());
-        conv.setLastMessagePreview("[System] " + bodyText);
-        convRepo.save(conv);
-
-        // 未读
-        var buyer = partRepo.findByConversationIdAndUserId(conv.getId(), conv.getBuyerId()).orElse(null);
-        var seller = partRepo.findByConversationIdAndUserId(conv.getId(), conv.getSellerId()).orElse(null);
-        if (buyer != null) {
-            buyer.setUnreadCount(buyer.getUnreadCount() + 1);
-            partRepo.save(buyer);
-        }
-        if (seller != null) {
-            seller.setUnreadCount(seller.getUnreadCount() + 1);
-            partRepo.save(seller);
+    /** 事务提交后执行（回滚则不推送）；无事务时立即执行 */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
-
-        // ✅ 推送会话新消息（SYSTEM）
-        var dto = new MessageResponse(
-                saved.getId(), saved.getType(), saved.getSenderId(), saved.getBody(),
-                saved.getImageUrl(), saved.getSystemEvent(), saved.getMeta(), saved.getCreatedAt()
-        );
-        System.out.println("[ChatDomainService] 🚀 Preparing to push review system message to WebSocket: " + dto);
-        ws.publishNewMessage(conv.getId(), dto);
-        System.out.println("[ChatDomainService] ✅ Review system message pushed to WebSocket");
-
-        // ✅ 推送收件箱变化到双方个人队列（驱动列表状态徽标立即刷新）
-        Map<String, Object> hint = Map.of("kind", "CONV_UPDATED", "conversationId", conv.getId().toString());
-        System.out.println("[ChatDomainService] 📬 Pushed inbox change to buyer: " + conv.getBuyerId());
-        ws.publishMyInboxChanged(conv.getBuyerId(), hint);
-        System.out.println("[ChatDomainService] 📬 Pushed inbox change to seller: " + conv.getSellerId());
-        ws.publishMyInboxChanged(conv.getSellerId(), hint);
-
-        return saved;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -1,18 +1,18 @@
 // src/main/java/com/koalaswap/chat/service/ConversationAuth.java
 package com.koalaswap.chat.service;
 
-import com.koalaswap.chat.repository.ConversationParticipantRepository;
+import com.koalaswap.chat.security.MembershipCache;
 import org.springframework.stereotype.Component;
 
 import java.util.UUID;
 
 @Component
 public class ConversationAuth {
-    private final ConversationParticipantRepository partRepo;
-    public ConversationAuth(ConversationParticipantRepository p){ this.partRepo = p; }
+    private final MembershipCache memberships;
+    public ConversationAuth(MembershipCache m){ this.memberships = m; }
 
     public void assertParticipant(UUID conversationId, UUID userId) {
-        var ok = partRepo.findByConversationIdAndUserId(conversationId, userId).isPresent();
+        var ok = memberships.find(conversationId, userId).isPresent();
         if (!ok) throw new IllegalStateException("FORBIDDEN: not a participant");
     }
 }
@@ -3,21 +3,27 @@ package com.koalaswap.chat.service;
 
 import com.koalaswap.chat.entity.ConversationParticipant;
 import com.koalaswap.chat.repository.ConversationParticipantRepository;
+import com.koalaswap.chat.security.MembershipCache;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
 
 @Service
 public class ConversationCommandService {
     private final ConversationParticipantRepository partRepo;
     private final ConversationAuth auth;
+    private final MembershipCache memberships;
+    private final InboxIndexService inbox;
+    private final UnreadTotalService unreadTotals;
 
-    public ConversationCommandService(ConversationParticipantRepository p, ConversationAuth a) {
-        this.partRepo = p; this.auth = a;
+    public ConversationCommandService(ConversationParticipantRepository p, ConversationAuth a, MembershipCache m,
+                                      InboxIndexService i, UnreadTotalService u) {
+        this.partRepo = p; this.auth = a; this.memberships = m; this.inbox = i; this.unreadTotals = u;
     }
 
     private ConversationParticipant me(UUID conversationId, UUID userId) {
@@ -31,6 +37,9 @@ public class ConversationCommandService {
         var p = me(conversationId, userId);
         p.setDeletedAt(Instant.now());
         partRepo.save(p);
+        memberships.invalidate(conversationId, userId);
+        inbox.remove(conversationId, userId);
+        unreadTotals.recompute(List.of(userId)); // 软删的会话不计入角标
     }
 
     @Transactional
@@ -47,6 +56,7 @@ public class ConversationCommandService {
         var p = me(conversationId, userId);
         p.setPinnedAt(pin ? Instant.now() : null);
         partRepo.save(p);
+        inbox.pin(conversationId, userId, pin);
     }
 
     @Transactional
@@ -4,41 +4,78 @@ package com.koalaswap.chat.service;
 import com.koalaswap.chat.client.OrderClient;
 import com.koalaswap.chat.client.ProductClient;
 import com.koalaswap.chat.client.UserClient;
-import com.koalaswap.chat.entity.Conversation;
 import com.koalaswap.chat.repository.ConversationReadRepository;
-import com.koalaswap.chat.repository.ConversationRepository;
 import com.koalaswap.chat.dto.ConversationListItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ConversationQueryService {
+    private static final Logger log = LoggerFactory.getLogger(ConversationQueryService.class);
 
     private final ConversationReadRepository readRepo;
-    private final ConversationRepository convRepo;
+    private final ConversationSnapshotReconciler reconciler;
+    private final ReadReceiptBuffer readReceipts;
+    private final InboxIndexService inbox;
     private final UserClient userClient;
     private final ProductClient productClient;
     private final OrderClient orderClient;
+    private final ExecutorService executor;
 
-    public ConversationQueryService(ConversationReadRepository r, ConversationRepository c,
-                                    UserClient u, ProductClient p, OrderClient o) {
-        this.readRepo = r; this.convRepo = c;
+    /** 三路聚合共享的总截止时间；各依赖另有单独超时（均不超过总截止时间才有意义） */
+    private final Duration deadline;
+    private final Duration userTimeout;
+    private final Duration productTimeout;
+    private final Duration orderTimeout;
+
+    public ConversationQueryService(ConversationReadRepository r, ConversationSnapshotReconciler reconciler,
+                                    ReadReceiptBuffer readReceipts, InboxIndexService inbox,
+                                    UserClient u, ProductClient p, OrderClient o,
+                                    @Qualifier("aggregationExecutor") ExecutorService executor,
+                                    @Value("${chat.aggregate.deadline:PT1.5S}") Duration deadline,
+                                    @Value("${chat.aggregate.user-timeout:PT1S}") Duration userTimeout,
+                                    @Value("${chat.aggregate.product-timeout:PT1S}") Duration productTimeout,
+                                    @Value("${chat.aggregate.order-timeout:PT1S}") Duration orderTimeout) {
+        this.readRepo = r; this.reconciler = reconciler; this.readReceipts = readReceipts; this.inbox = inbox;
         this.userClient = u; this.productClient = p; this.orderClient = o;
+        this.executor = executor;
+        this.deadline = deadline;
+        this.userTimeout = userTimeout;
+        this.productTimeout = productTimeout;
+        this.orderTimeout = orderTimeout;
     }
 
+    /**
+     * 基础列表：优先走 Redis 会话索引（id 分页 + 一条 id IN 查询）；
+     * 只看归档、索引未启用或 Redis 不可用时走 SQL
+     */
     public Page<ConversationListItem> page(UUID userId, boolean onlyArchived, boolean onlyPinned, Pageable pageable) {
-        return readRepo.pageForUser(userId, onlyArchived, onlyPinned, pageable);
+        if (onlyArchived) return readRepo.pageForUser(userId, true, onlyPinned, pageable);
+        return inbox.page(userId, onlyPinned, pageable)
+                .orElseGet(() -> readRepo.pageForUser(userId, false, onlyPinned, pageable));
     }
 
-    /** [B3 CHANGE] 带聚合：补 peer 昵称头像、商品首图/卖家、订单状态；并回写缓存（幂等） */
-    @Transactional
+    /**
+     * [B3 CHANGE] 带聚合：补 peer 昵称头像、商品首图/卖家、订单状态
+     * 不开事务：列表查询本身为只读（见 ConversationReadRepository），远程扇出期间不占用连接；
+     * 快照为空的会话交给 ConversationSnapshotReconciler 异步回填（幂等）
+     */
     public Page<ConversationListItem> pageAggregated(UUID userId, boolean onlyArchived, boolean onlyPinned, Pageable pageable) {
-        Page<ConversationListItem> page = readRepo.pageForUser(userId, onlyArchived, onlyPinned, pageable);
+        Page<ConversationListItem> page = page(userId, onlyArchived, onlyPinned, pageable);
         if (page.isEmpty()) return page;
 
         // 收集 ID
@@ -46,32 +83,32 @@ public class ConversationQueryService {
         Set<UUID> productIds = page.stream().map(ConversationListItem::productId).filter(Objects::nonNull).collect(Collectors.toSet());
         Set<UUID> orderIds = page.stream().map(ConversationListItem::orderId).filter(Objects::nonNull).collect(Collectors.toSet());
 
-        var users = userClient.batchBrief(peerIds);
-        var products = productClient.batchBrief(productIds);
-        var orders = orderClient.batchBrief(orderIds);
+        // 三路并发：总耗时取决于最慢的一路；超时/失败的一路降级为空，其余照常返回
+        long deadlineAt = System.nanoTime() + deadline.toNanos();
+        var usersF = fanOut(peerIds, userClient::batchBrief, userTimeout);
+        var productsF = fanOut(productIds, productClient::batchBrief, productTimeout);
+        var ordersF = fanOut(orderIds, orderClient::batchBrief, orderTimeout);
+
+        var users = await("user", usersF, deadlineAt);
+        var products = await("product", productsF, deadlineAt);
+        var orders = await("order", ordersF, deadlineAt);
 
-        // 回写缓存：若首图/状态为空则使用聚合结果回填
-        Map<UUID, Conversation> toUpdate = new LinkedHashMap<>();
+        // 快照回填：只入队，由后台批量 UPDATE
         for (ConversationListItem it : page) {
-            Conversation conv = null;
             var p = products.get(it.productId());
-            if (p != null && (it.productFirstImage() == null || it.productFirstImage().isBlank())) {
-                if (conv == null) conv = convRepo.findById(it.id()).orElse(null);
-                if (conv != null) { conv.setProductFirstImage(p.firstImageUrl()); toUpdate.put(conv.getId(), conv); }
-            }
+            String image = (p != null && (it.productFirstImage() == null || it.productFirstImage().isBlank()))
+                    ? p.firstImageUrl() : null;
             var o = orders.get(it.orderId());
-            if (o != null && it.orderStatus() == null) {
-                if (conv == null) conv = convRepo.findById(it.id()).orElse(null);
-                if (conv != null) { conv.setOrderStatusCache(o.status()); toUpdate.put(conv.getId(), conv); }
-            }
+            var status = (o != null && it.orderStatus() == null) ? o.status() : null;
+            reconciler.enqueue(it.id(), image, status);
         }
-        if (!toUpdate.isEmpty()) convRepo.saveAll(toUpdate.values());
 
         // 生成带 peer 昵称/头像和商品信息的视图对象
         return page.map(it -> new ConversationListItem(
                 it.id(), it.productId(), it.orderId(), it.buyerId(), it.sellerId(), it.peerUserId(),
-                it.unread(), it.archived(), it.pinnedAt(),
-                it.orderStatus(), // 若已回写，下次查询就有；本次仍用原值
+                readReceipts.isPending(it.id(), userId) ? 0 : it.unread(), // 已读尚未落库时按已读展示
+                it.archived(), it.pinnedAt(),
+                it.orderStatus(), // 回填异步完成，下次查询就有；本次仍用原值
                 it.productFirstImage(),
                 it.lastMessageAt(), it.lastMessagePreview(),
                 Optional.ofNullable(users.get(it.peerUserId())).map(UserClient.UserBrief::displayName).orElse(null),
@@ -83,4 +120,31 @@ public class ConversationQueryService {
                 Optional.ofNullable(orders.get(it.orderId())).map(OrderClient.OrderBrief::priceSnapshot).orElse(null)
         ));
     }
+
+    // ---------- 并发聚合 ----------
+
+    private <V> CompletableFuture<Map<UUID, V>> fanOut(Set<UUID> ids,
+                                                      Function<Set<UUID>, Map<UUID, V>> call,
+                                                      Duration timeout) {
+        if (ids.isEmpty()) return CompletableFuture.completedFuture(Collections.emptyMap());
+        return CompletableFuture.supplyAsync(() -> call.apply(ids), executor)
+                .completeOnTimeout(Collections.emptyMap(), timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /** 在总截止时间内等待结果；超时或异常返回空 Map（对应字段在列表中显示为空；emptyMap 允许 get(null)） */
+    private <V> Map<UUID, V> await(String dependency, CompletableFuture<Map<UUID, V>> f, long deadlineAt) {
+        try {
+            return f.get(Math.max(0, deadlineAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("{} brief aggregation exceeded deadline, degrading to empty", dependency);
+            f.cancel(true);
+            return Collections.emptyMap();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyMap();
+        } catch (Exception e) {
+            log.warn("{} brief aggregation failed, degrading to empty: {}", dependency, e.toString());
+            return Collections.emptyMap();
+        }
+    }
 }
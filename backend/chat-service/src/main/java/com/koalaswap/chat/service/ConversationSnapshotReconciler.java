@@ -0,0 +1,101 @@
+// src/main/java/com/koalaswap/chat/service/ConversationSnapshotReconciler.java
+package com.koalaswap.chat.service;
+
+import com.koalaswap.chat.model.OrderStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话快照回填（商品首图 product_first_image / 订单状态 order_status_cache）
+ * - 列表聚合时发现快照为空只负责入队，不在请求线程里写库
+ * - 后台按批 UPDATE（JDBC batch），只填空值：幂等，也不会覆盖之后写入的新值
+ * - WHERE 只命中仍为空的行：已回填的会话不会被重复写，也就不会再触发 updated_at 更新
+ * - 队列有上限，满了直接丢弃：下次有人打开列表时会重新入队
+ */
+@Component
+public class ConversationSnapshotReconciler {
+    private static final Logger log = LoggerFactory.getLogger(ConversationSnapshotReconciler.class);
+
+    private static final String FILL_IMAGE_SQL = """
+        update conversations set product_first_image = ?
+        where id = ? and (product_first_image is null or product_first_image = '')
+        """;
+    private static final String FILL_STATUS_SQL = """
+        update conversations set order_status_cache = cast(? as order_status)
+        where id = ? and order_status_cache is null
+        """;
+
+    private record Patch(String firstImage, OrderStatus orderStatus) {
+        Patch merge(Patch other) {
+            return new Patch(
+                    other.firstImage != null ? other.firstImage : firstImage,
+                    other.orderStatus != null ? other.orderStatus : orderStatus);
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final int batchSize;
+    private final int maxPending;
+    private final Map<UUID, Patch> pending = new ConcurrentHashMap<>();
+
+    public ConversationSnapshotReconciler(JdbcTemplate jdbc,
+                                          @Value("${chat.snapshot-backfill.batch-size:200}") int batchSize,
+                                          @Value("${chat.snapshot-backfill.max-pending:10000}") int maxPending) {
+        this.jdbc = jdbc;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    /** 入队（任一参数为 null 表示该字段不需要回填） */
+    public void enqueue(UUID conversationId, String firstImage, OrderStatus orderStatus) {
+        if (conversationId == null || (firstImage == null && orderStatus == null)) return;
+        if (pending.size() >= maxPending && !pending.containsKey(conversationId)) return;
+        pending.merge(conversationId, new Patch(firstImage, orderStatus), Patch::merge);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.snapshot-backfill.interval:PT2S}")
+    public void flush() {
+        while (!pending.isEmpty()) {
+            if (flushBatch() == 0) break;
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try { flush(); } catch (Exception e) { log.warn("snapshot backfill on shutdown failed: {}", e.toString()); }
+    }
+
+    private int flushBatch() {
+        List<Object[]> images = new ArrayList<>();
+        List<Object[]> statuses = new ArrayList<>();
+        int taken = 0;
+        for (Iterator<Map.Entry<UUID, Patch>> it = pending.entrySet().iterator(); it.hasNext() && taken < batchSize; ) {
+            var e = it.next();
+            it.remove();
+            taken++;
+            var p = e.getValue();
+            if (p.firstImage() != null) images.add(new Object[]{p.firstImage(), e.getKey()});
+            if (p.orderStatus() != null) statuses.add(new Object[]{p.orderStatus().name(), e.getKey()});
+        }
+        try {
+            if (!images.isEmpty()) jdbc.batchUpdate(FILL_IMAGE_SQL, images);
+            if (!statuses.isEmpty()) jdbc.batchUpdate(FILL_STATUS_SQL, statuses);
+        } catch (Exception ex) {
+            // 尽力而为：丢弃本批，之后的列表请求会重新入队
+            log.warn("snapshot backfill batch failed ({} conversations): {}", taken, ex.toString());
+        }
+        return taken;
+    }
+}
@@ -0,0 +1,230 @@
+// src/main/java/com/koalaswap/chat/service/InboxIndexService.java
+package com.koalaswap.chat.service;
+
+import com.koalaswap.chat.dto.ConversationListItem;
+import com.koalaswap.chat.repository.ConversationReadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 会话列表索引（Redis ZSET，每个用户一份）
+ * - chat:inbox:{uid}        全部未删除的会话，score = 最后消息时间（无消息时为 updated_at，毫秒）
+ * - chat:inbox:{uid}:pinned 置顶的会话（score 同上），供 onlyPinned 翻页
+ * - chat:inbox:{uid}:ready  索引已构建的标记；缺失（过期/被清）时读请求先用 SQL 重建
+ * 列表：ZREVRANGE 取一页 id，再用一条 id IN (...) 查询补全行数据；Redis 不可用时返回 empty，由调用方走 SQL
+ * 维护：发消息/系统消息只更新已存在成员的分数（ZADD XX GT），软删的会话不会被“复活”，乱序事件不会让会话排序倒退；
+ *       新建会话才新增成员，新增未生效时删除 ready 标记强制重建。所有写操作在事务提交后执行。
+ */
+@Service
+public class InboxIndexService {
+    private static final Logger log = LoggerFactory.getLogger(InboxIndexService.class);
+
+    private static final String KEY_PREFIX = "chat:inbox:";
+
+    private static final String REBUILD_SQL = """
+        select c.id, coalesce(c.last_message_at, c.updated_at), cp.pinned_at is not null
+        from conversation_participants cp
+        join conversations c on c.id = cp.conversation_id
+        where cp.user_id = ? and cp.deleted_at is null
+        """;
+
+    private final StringRedisTemplate redis;
+    private final JdbcTemplate jdbc;
+    private final ConversationReadRepository readRepo;
+    private final boolean enabled;
+    private final Duration ttl;
+
+    public InboxIndexService(StringRedisTemplate redis, JdbcTemplate jdbc, ConversationReadRepository readRepo,
+                             @Value("${chat.inbox-index.enabled:true}") boolean enabled,
+                             @Value("${chat.inbox-index.ttl:P7D}") Duration ttl) {
+        this.redis = redis;
+        this.jdbc = jdbc;
+        this.readRepo = readRepo;
+        this.enabled = enabled;
+        this.ttl = ttl;
+    }
+
+    // ---------- 读 ----------
+
+    /** 按索引翻页；未启用或 Redis 异常时返回 empty */
+    public Optional<Page<ConversationListItem>> page(UUID userId, boolean onlyPinned, Pageable pageable) {
+        if (!enabled) return Optional.empty();
+        try {
+            if (!Boolean.TRUE.equals(redis.hasKey(readyKey(userId)))) rebuild(userId);
+
+            String key = onlyPinned ? pinnedKey(userId) : mainKey(userId);
+            var zset = redis.opsForZSet();
+            Long total = zset.zCard(key);
+            long start = pageable.getOffset();
+            Set<String> ids = zset.reverseRange(key, start, start + pageable.getPageSize() - 1);
+            if (ids == null || ids.isEmpty()) {
+                return Optional.of(new PageImpl<>(List.of(), pageable, total == null ? 0 : total));
+            }
+
+            List<UUID> ordered = ids.stream().map(UUID::fromString).toList();
+            Map<UUID, ConversationListItem> byId = readRepo.findItemsForUser(userId, ordered).stream()
+                    .collect(Collectors.toMap(ConversationListItem::id, Function.identity()));
+            List<ConversationListItem> content = new ArrayList<>(ordered.size());
+            for (UUID id : ordered) {
+                var it = byId.get(id);
+                if (it != null) content.add(it); // 索引里有、库里已删：跳过，等 TTL 到期重建时清理
+            }
+            return Optional.of(new PageImpl<>(content, pageable, total == null ? content.size() : total));
+        } catch (Exception e) {
+            log.warn("inbox index unavailable for {}, falling back to SQL: {}", userId, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    // ---------- 写（提交后执行，失败只记日志：索引会在 TTL 到期后按 SQL 重建） ----------
+
+    /**
+     * 有新消息：更新双方索引中的分数（只更新已存在的成员，且分数只增不减）
+     * - 写入失败：与 add 相同，清掉双方的 ready 标记强制重建，否则排序一直停在旧分数直到 TTL 到期
+     */
+    public void touch(UUID conversationId, Instant at, UUID... userIds) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            String member = conversationId.toString();
+            double score = at.toEpochMilli();
+            try {
+                redis.executePipelined((RedisCallback<Object>) conn -> {
+                    for (UUID uid : userIds) {
+                        conn.zSetCommands().zAdd(mainKey(uid).getBytes(), score, member.getBytes(),
+                                ZAddArgs.ifExists().gt());
+                        conn.zSetCommands().zAdd(pinnedKey(uid).getBytes(), score, member.getBytes(),
+                                ZAddArgs.ifExists().gt());
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("inbox index touch failed for {}, forcing rebuild: {}", conversationId, e.toString());
+                redis.delete(Arrays.stream(userIds).map(InboxIndexService::readyKey).toList());
+            }
+        });
+    }
+
+    /**
+     * 新建会话：加入双方索引
+     * - 索引未构建：清掉 ready 标记（并发重建可能在本事务提交前读过 SQL、随后才写入标记），下次读取按 SQL 重建
+     * - 写入失败：同样清掉标记强制重建；否则 touch 只更新已有成员，新会话会一直缺失到 TTL 到期
+     */
+    public void add(UUID conversationId, Instant at, UUID... userIds) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            for (UUID uid : userIds) {
+                try {
+                    if (Boolean.TRUE.equals(redis.hasKey(readyKey(uid)))) {
+                        redis.opsForZSet().add(mainKey(uid), conversationId.toString(), at.toEpochMilli());
+                    } else {
+                        redis.delete(readyKey(uid));
+                    }
+                } catch (Exception e) {
+                    log.warn("inbox index add failed for {}, forcing rebuild: {}", uid, e.toString());
+                    redis.delete(readyKey(uid));
+                }
+            }
+        });
+    }
+
+    /** 软删：从该用户的索引中移除 */
+    public void remove(UUID conversationId, UUID userId) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            redis.opsForZSet().remove(mainKey(userId), conversationId.toString());
+            redis.opsForZSet().remove(pinnedKey(userId), conversationId.toString());
+        });
+    }
+
+    /** 置顶/取消置顶：维护置顶集合（分数取主索引中的分数） */
+    public void pin(UUID conversationId, UUID userId, boolean pinned) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            String member = conversationId.toString();
+            if (!pinned) {
+                redis.opsForZSet().remove(pinnedKey(userId), member);
+                return;
+            }
+            Double score = redis.opsForZSet().score(mainKey(userId), member);
+            if (score != null) redis.opsForZSet().add(pinnedKey(userId), member, score);
+        });
+    }
+
+    // ---------- 私有方法 ----------
+
+    /** 一条 SQL 取该用户全部未删除会话，整体替换索引（无排序、无 count） */
+    private void rebuild(UUID userId) {
+        Map<String, Double> all = new HashMap<>();
+        Map<String, Double> pinned = new HashMap<>();
+        jdbc.query(REBUILD_SQL, rs -> {
+            String id = rs.getObject(1, UUID.class).toString();
+            // TIMESTAMP 列按 UTC 存储（hibernate.jdbc.time_zone=UTC），按 UTC 解释，与 touch 的 Instant 一致
+            LocalDateTime at = rs.getObject(2, LocalDateTime.class);
+            double score = at == null ? 0 : at.toInstant(ZoneOffset.UTC).toEpochMilli();
+            all.put(id, score);
+            if (rs.getBoolean(3)) pinned.put(id, score);
+        }, userId);
+
+        String main = mainKey(userId), pin = pinnedKey(userId), ready = readyKey(userId);
+        redis.executePipelined((RedisCallback<Object>) conn -> {
+            conn.keyCommands().del(main.getBytes(), pin.getBytes());
+            for (var e : all.entrySet()) conn.zSetCommands().zAdd(main.getBytes(), e.getValue(), e.getKey().getBytes());
+            for (var e : pinned.entrySet()) conn.zSetCommands().zAdd(pin.getBytes(), e.getValue(), e.getKey().getBytes());
+            conn.keyCommands().pExpire(main.getBytes(), ttl.toMillis());
+            conn.keyCommands().pExpire(pin.getBytes(), ttl.toMillis());
+            conn.stringCommands().set(ready.getBytes(), "1".getBytes(),
+                    Expiration.milliseconds(ttl.toMillis()),
+                    RedisStringCommands.SetOption.upsert());
+            return null;
+        });
+    }
+
+    private static String mainKey(UUID userId) { return KEY_PREFIX + userId; }
+    private static String pinnedKey(UUID userId) { return KEY_PREFIX + userId + ":pinned"; }
+    private static String readyKey(UUID userId) { return KEY_PREFIX + userId + ":ready"; }
+
+    /** 事务提交后执行；无事务时立即执行。Redis 失败不影响主流程 */
+    private static void afterCommit(Runnable action) {
+        Runnable safe = () -> {
+            try { action.run(); } catch (Exception e) { log.warn("inbox index update failed: {}", e.toString()); }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            safe.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                safe.run();
+            }
+        });
+    }
+}
@@ -1,27 +1,142 @@
 // src/main/java/com/koalaswap/chat/service/RateLimitService.java
 package com.koalaswap.chat.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
 
+/**
+ * 发消息限流（令牌桶，允许突发）
+ * - 两级：会话内 (conversationId, userId) + 用户全局 userId；两个桶都有令牌才放行，且要么都扣要么都不扣
+ * - 本地模式：Caffeine 有界缓存，按最大条数 + 空闲过期淘汰，长时间运行内存不再无限增长
+ * - Redis 模式（chat.rate-limit.redis-enabled=true）：Lua 脚本原子判定，多副本共享同一额度；
+ *   Redis 异常时退化为本地判定，不因限流组件故障拒绝发送
+ */
 @Service
 public class RateLimitService {
-    private static final long WINDOW_MS = TimeUnit.SECONDS.toMillis(2);
-    private final Map<String, Long> last = new ConcurrentHashMap<>();
-
-    /** key = conversationId:userId */
-    public boolean allowSend(String key) {
-        long now = Instant.now().toEpochMilli();
-        Long prev = last.get(key);
-        if (prev == null || now - prev >= WINDOW_MS) {
-            last.put(key, now);
-            return true;
+    private static final Logger log = LoggerFactory.getLogger(RateLimitService.class);
+
+    private static final String KEY_PREFIX = "chat:rl:";
+
+    /**
+     * KEYS[1]=会话桶 KEYS[2]=用户桶；ARGV = 容量1, 速率1(个/秒), 容量2, 速率2, 过期毫秒
+     * 桶为 hash {t: 令牌数, ts: 上次补充的毫秒时间}；时间取 Redis TIME，不依赖各副本时钟
+     */
+    private static final DefaultRedisScript<Long> TAKE_SCRIPT = new DefaultRedisScript<>("""
+        local t = redis.call('TIME')
+        local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+        local function refill(key, cap, rate)
+          local b = redis.call('HMGET', key, 't', 'ts')
+          local tokens = tonumber(b[1]) or cap
+          local ts = tonumber(b[2]) or now
+          return math.min(cap, tokens + math.max(0, now - ts) * rate / 1000)
+        end
+        local c1, r1 = tonumber(ARGV[1]), tonumber(ARGV[2])
+        local c2, r2 = tonumber(ARGV[3]), tonumber(ARGV[4])
+        local ttl = tonumber(ARGV[5])
+        local a = refill(KEYS[1], c1, r1)
+        local b = refill(KEYS[2], c2, r2)
+        local ok = 0
+        if a >= 1 and b >= 1 then
+          a = a - 1; b = b - 1; ok = 1
+        end
+        redis.call('HSET', KEYS[1], 't', tostring(a), 'ts', now)
+        redis.call('PEXPIRE', KEYS[1], ttl)
+        redis.call('HSET', KEYS[2], 't', tostring(b), 'ts', now)
+        redis.call('PEXPIRE', KEYS[2], ttl)
+        return ok
+        """, Long.class);
+
+    /** 单个令牌桶（本地模式）；所有读写在桶自身的锁内 */
+    private static final class Bucket {
+        private final double capacity;
+        private final double ratePerNano;
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(double capacity, double ratePerSecond, long now) {
+            this.capacity = capacity;
+            this.ratePerNano = ratePerSecond / 1_000_000_000d;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        boolean available(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+            refilledAt = now;
+            return tokens >= 1;
+        }
+
+        void take() { tokens -= 1; }
+    }
+
+    private final StringRedisTemplate redis;
+    private final boolean redisEnabled;
+    private final double convCapacity, convRate, userCapacity, userRate;
+    private final long redisTtlMs;
+    private final Cache<String, Bucket> conversationBuckets;
+    private final Cache<UUID, Bucket> userBuckets;
+
+    public RateLimitService(StringRedisTemplate redis,
+                            @Value("${chat.rate-limit.redis-enabled:false}") boolean redisEnabled,
+                            @Value("${chat.rate-limit.conversation.capacity:5}") double convCapacity,
+                            @Value("${chat.rate-limit.conversation.refill-per-second:0.5}") double convRate,
+                            @Value("${chat.rate-limit.user.capacity:20}") double userCapacity,
+                            @Value("${chat.rate-limit.user.refill-per-second:2}") double userRate,
+                            @Value("${chat.rate-limit.max-keys:100000}") long maxKeys,
+                            @Value("${chat.rate-limit.idle-ttl:PT10M}") Duration idleTtl) {
+        this.redis = redis;
+        this.redisEnabled = redisEnabled;
+        this.convCapacity = convCapacity;
+        this.convRate = convRate;
+        this.userCapacity = userCapacity;
+        this.userRate = userRate;
+        this.redisTtlMs = idleTtl.toMillis();
+        // 空闲超过 idle-ttl 的桶必然已回满，淘汰后重建结果相同
+        this.conversationBuckets = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(idleTtl).build();
+        this.userBuckets = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(idleTtl).build();
+    }
+
+    /** 发送一条消息是否放行（放行即扣减会话桶与用户桶各一个令牌） */
+    public boolean allowSend(UUID conversationId, UUID userId) {
+        String convKey = conversationId + ":" + userId;
+        if (redisEnabled) {
+            try {
+                Long ok = redis.execute(TAKE_SCRIPT,
+                        List.of(KEY_PREFIX + "c:" + convKey, KEY_PREFIX + "u:" + userId),
+                        String.valueOf(convCapacity), String.valueOf(convRate),
+                        String.valueOf(userCapacity), String.valueOf(userRate),
+                        String.valueOf(redisTtlMs));
+                return ok != null && ok == 1L;
+            } catch (Exception e) {
+                log.warn("redis rate limit failed, falling back to local buckets: {}", e.toString());
+            }
+        }
+        return allowLocal(convKey, userId);
+    }
+
+    private boolean allowLocal(String convKey, UUID userId) {
+        long now = System.nanoTime();
+        Bucket conv = conversationBuckets.get(convKey, k -> new Bucket(convCapacity, convRate, now));
+        Bucket user = userBuckets.get(userId, k -> new Bucket(userCapacity, userRate, now));
+        // 固定加锁顺序（会话桶 -> 用户桶），不会死锁
+        synchronized (conv) {
+            synchronized (user) {
+                long t = System.nanoTime();
+                if (!conv.available(t) || !user.available(t)) return false;
+                conv.take();
+                user.take();
+                return true;
+            }
         }
-        return false;
     }
 }
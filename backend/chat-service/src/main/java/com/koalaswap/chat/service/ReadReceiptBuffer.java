@@ -0,0 +1,193 @@
+// src/main/java/com/koalaswap/chat/service/ReadReceiptBuffer.java
+package com.koalaswap.chat.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 已读位置写后缓冲（markRead 的落库）
+ * - 每次 /read 只在内存登记 (会话, 用户) -> 读到的消息 id，读回执仍由调用方立即推送
+ * - 后台按批 UPDATE conversation_participants（JDBC batch）；同一 key 在窗口内多次标记只写一次
+ * - 消息 id 为 UUID 无序，“取最大”在 SQL 中按 messages.seq 判定：只前进不后退，重复执行幂等
+ * - unread_count 按读到位置之后、非本人发送的消息数重算，窗口期内到达的新消息不会被清零
+ * - 队列满时退化为同步单条 UPDATE，不丢已读位置
+ * - 批量写失败时把本批 id 合并回队列，下次 flush 重试；同一 key 连续失败 max-attempts 次后丢弃
+ * - 落库后通知 UnreadTotalService 重新汇总相关用户的未读总数
+ */
+@Component
+public class ReadReceiptBuffer {
+    private static final Logger log = LoggerFactory.getLogger(ReadReceiptBuffer.class);
+
+    /** 每个 key 最多保留的候选 id（新的在后；客户端按时间顺序标记，丢弃最早的即可） */
+    private static final int MAX_CANDIDATES = 8;
+
+    private static final String ADVANCE_SQL = """
+        with target as (
+            select m.id, m.seq from messages m
+            where m.conversation_id = ? and m.id = any(?)
+            order by m.seq desc
+            limit 1
+        )
+        update conversation_participants p
+        set last_read_message_id = t.id,
+            unread_count = (
+                select count(*)::int from messages x
+                where x.conversation_id = p.conversation_id
+                  and x.seq > t.seq
+                  and x.sender_id is distinct from p.user_id)
+        from target t
+        where p.conversation_id = ? and p.user_id = ?
+          and t.seq >= coalesce(
+                (select r.seq from messages r where r.id = p.last_read_message_id), 0)
+        """;
+
+    private record Key(UUID conversationId, UUID userId) {}
+
+    private final JdbcTemplate jdbc;
+    private final UnreadTotalService unreadTotals;
+    private final int batchSize;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final Map<Key, LinkedHashSet<UUID>> pending = new ConcurrentHashMap<>();
+    /** 连续写失败次数（成功或丢弃后清除） */
+    private final Map<Key, Integer> failures = new ConcurrentHashMap<>();
+
+    public ReadReceiptBuffer(JdbcTemplate jdbc, UnreadTotalService unreadTotals,
+                             @Value("${chat.read-receipt.batch-size:500}") int batchSize,
+                             @Value("${chat.read-receipt.max-pending:50000}") int maxPending,
+                             @Value("${chat.read-receipt.max-attempts:5}") int maxAttempts) {
+        this.jdbc = jdbc;
+        this.unreadTotals = unreadTotals;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /** 登记已读位置（不落库）；队列已满且是新 key 时直接同步写 */
+    public void record(UUID conversationId, UUID userId, UUID messageId) {
+        if (conversationId == null || userId == null || messageId == null) return;
+        var key = new Key(conversationId, userId);
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            jdbc.update(ADVANCE_SQL, ps -> bind(ps, key, List.of(messageId)));
+            unreadTotals.recompute(List.of(userId));
+            return;
+        }
+        // compute 与 flush 中的 remove 针对同一 key 互斥：不会把 id 加进已被取走的集合
+        pending.compute(key, (k, ids) -> {
+            if (ids == null) ids = new LinkedHashSet<>();
+            ids.remove(messageId);
+            ids.add(messageId);
+            trim(ids);
+            return ids;
+        });
+    }
+
+    /** 是否有尚未落库的已读标记（列表据此把未读显示为 0，避免刷新后未读“回弹”） */
+    public boolean isPending(UUID conversationId, UUID userId) {
+        return pending.containsKey(new Key(conversationId, userId));
+    }
+
+    /** 逐批落库；某批失败则停止本轮（该批已放回队列），留到下次调度重试 */
+    @Scheduled(fixedDelayString = "${chat.read-receipt.flush-interval:PT1S}")
+    public void flush() {
+        while (!pending.isEmpty()) {
+            if (flushBatch() == 0) break;
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try { flush(); } catch (Exception e) { log.warn("read receipt flush on shutdown failed: {}", e.toString()); }
+    }
+
+    /** 返回成功落库的 key 数；0 表示队列已空或本批失败 */
+    private int flushBatch() {
+        List<Key> keys = new ArrayList<>();
+        List<List<UUID>> ids = new ArrayList<>();
+        for (Iterator<Key> it = pending.keySet().iterator(); it.hasNext() && keys.size() < batchSize; ) {
+            var key = it.next();
+            var taken = pending.remove(key);
+            if (taken == null || taken.isEmpty()) continue;
+            keys.add(key);
+            ids.add(List.copyOf(taken));
+        }
+        if (keys.isEmpty()) return 0;
+        try {
+            jdbc.batchUpdate(ADVANCE_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    bind(ps, keys.get(i), ids.get(i));
+                }
+
+                @Override
+                public int getBatchSize() { return keys.size(); }
+            });
+            // 未读已按 SQL 重算，角标总数随之重新汇总
+            unreadTotals.recompute(keys.stream().map(Key::userId).collect(Collectors.toSet()));
+        } catch (Exception ex) {
+            log.warn("read receipt batch failed ({} participants), will retry: {}", keys.size(), ex.toString());
+            requeue(keys, ids);
+            return 0;
+        }
+        keys.forEach(failures::remove);
+        return keys.size();
+    }
+
+    /**
+     * 失败批次放回队列：取走的 id 比窗口内新登记的更早，排在前面，超出候选上限时先被淘汰。
+     * 超过重试上限的 key 丢弃（客户端下次滚动/进入会话会重新标记）。
+     */
+    private void requeue(List<Key> keys, List<List<UUID>> ids) {
+        int dropped = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            var key = keys.get(i);
+            if (failures.merge(key, 1, Integer::sum) >= maxAttempts) {
+                failures.remove(key);
+                dropped++;
+                continue;
+            }
+            var taken = ids.get(i);
+            pending.compute(key, (k, newer) -> {
+                var merged = new LinkedHashSet<>(taken);
+                if (newer != null) {
+                    merged.removeAll(newer);
+                    merged.addAll(newer);
+                }
+                trim(merged);
+                return merged;
+            });
+        }
+        if (dropped > 0) log.warn("read receipt dropped after {} attempts ({} participants)", maxAttempts, dropped);
+    }
+
+    private static void trim(LinkedHashSet<UUID> ids) {
+        for (Iterator<UUID> it = ids.iterator(); ids.size() > MAX_CANDIDATES; ) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Key key, List<UUID> messageIds) throws SQLException {
+        ps.setObject(1, key.conversationId());
+        ps.setArray(2, ps.getConnection().createArrayOf("uuid", messageIds.toArray()));
+        ps.setObject(3, key.conversationId());
+        ps.setObject(4, key.userId());
+    }
+}
@@ -0,0 +1,81 @@
+// src/main/java/com/koalaswap/chat/service/SystemEventBuffer.java
+package com.koalaswap.chat.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订单/评价事件的微批缓冲
+ * - 订阅线程只做解析 + 入队，不开事务
+ * - 队列按 dedupKey 合并：窗口内重复的事件只保留一条
+ * - 后台按批交给 ChatDomainService.appendSystemMessages（一个事务、JDBC batch）；
+ *   整批失败时逐条重试，单条坏数据不会拖垮整批
+ * - 队列满时在调用线程上直接落库，不丢事件
+ */
+@Component
+public class SystemEventBuffer {
+    private static final Logger log = LoggerFactory.getLogger(SystemEventBuffer.class);
+
+    private final ChatDomainService chat;
+    private final int batchSize;
+    private final int maxPending;
+    private final Map<String, SystemMessageCommand> pending = new ConcurrentHashMap<>();
+
+    public SystemEventBuffer(ChatDomainService chat,
+                             @Value("${chat.system-events.batch-size:200}") int batchSize,
+                             @Value("${chat.system-events.max-pending:10000}") int maxPending) {
+        this.chat = chat;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    public void submit(SystemMessageCommand cmd) {
+        if (pending.size() >= maxPending && !pending.containsKey(cmd.dedupKey())) {
+            apply(List.of(cmd));
+            return;
+        }
+        pending.putIfAbsent(cmd.dedupKey(), cmd);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.system-events.flush-interval:PT0.2S}")
+    public void flush() {
+        while (!pending.isEmpty()) {
+            List<SystemMessageCommand> batch = new ArrayList<>();
+            for (Iterator<String> it = pending.keySet().iterator(); it.hasNext() && batch.size() < batchSize; ) {
+                var cmd = pending.remove(it.next());
+                if (cmd != null) batch.add(cmd);
+            }
+            if (batch.isEmpty()) break;
+            apply(batch);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try { flush(); } catch (Exception e) { log.warn("system event flush on shutdown failed: {}", e.toString()); }
+    }
+
+    private void apply(List<SystemMessageCommand> batch) {
+        try {
+            int inserted = chat.appendSystemMessages(batch);
+            log.debug("system events applied: {} received, {} inserted", batch.size(), inserted);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                log.warn("system event {} failed: {}", batch.get(0).dedupKey(), e.toString());
+                return;
+            }
+            log.warn("system event batch failed ({} events), retrying one by one: {}", batch.size(), e.toString());
+            for (var cmd : batch) apply(List.of(cmd));
+        }
+    }
+}
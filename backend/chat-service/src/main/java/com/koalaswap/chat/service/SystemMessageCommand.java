@@ -0,0 +1,75 @@
+// src/main/java/com/koalaswap/chat/service/SystemMessageCommand.java
+package com.koalaswap.chat.service;
+
+import com.koalaswap.chat.events.OrderStatusEvent;
+import com.koalaswap.chat.events.ReviewEvent;
+import com.koalaswap.chat.model.OrderStatus;
+import com.koalaswap.chat.model.SystemEvent;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * 待落库的系统消息（由订单/评价事件转换而来）
+ * - dedupKey：业务去重键，对应 messages.dedup_key（见 KoalaSwap_v2.4.sql）
+ * - orderStatus：仅订单事件有值，用于同步会话的 order_status_cache
+ * - createConversation：会话不存在时是否新建（订单事件建，评价事件跳过）
+ */
+public record SystemMessageCommand(
+        String dedupKey,
+        UUID productId,
+        UUID orderId,
+        UUID buyerId,
+        UUID sellerId,
+        SystemEvent event,
+        String body,
+        String preview,
+        String meta,
+        OrderStatus orderStatus,
+        boolean createConversation,
+        Instant occurredAt
+) {
+    public static SystemMessageCommand fromOrder(OrderStatusEvent evt) {
+        var event = mapSystemEvent(evt.newStatus);
+        return new SystemMessageCommand(
+                "order:" + evt.orderId + ":" + evt.newStatus,
+                evt.productId, evt.orderId, evt.buyerId, evt.sellerId,
+                event, systemBodyFor(evt.newStatus), "[System] " + event,
+                "{\"orderId\":\"" + evt.orderId + "\",\"newStatus\":\"" + evt.newStatus + "\"}",
+                evt.newStatus, true,
+                evt.occurredAt != null ? evt.occurredAt : Instant.now());
+    }
+
+    public static SystemMessageCommand fromReview(ReviewEvent evt) {
+        boolean byBuyer = "BUYER".equals(evt.reviewerRole());
+        String body = byBuyer ? "Buyer has left a review" : "Seller has left a review";
+        return new SystemMessageCommand(
+                "review:" + evt.orderId() + ":" + evt.reviewerId(),
+                evt.productId(), evt.orderId(), evt.buyerId(), evt.sellerId(),
+                byBuyer ? SystemEvent.BUYER_REVIEWED : SystemEvent.SELLER_REVIEWED,
+                body, "[System] " + body,
+                "{\"orderId\":\"" + evt.orderId() + "\",\"reviewerId\":\"" + evt.reviewerId() + "\",\"reviewerRole\":\"" + evt.reviewerRole() + "\"}",
+                null, false,
+                evt.occurredAt() != null ? evt.occurredAt() : Instant.now());
+    }
+
+    private static SystemEvent mapSystemEvent(OrderStatus s) {
+        return switch (s) {
+            case PENDING    -> SystemEvent.ORDER_PLACED;
+            case PAID       -> SystemEvent.PAID;
+            case SHIPPED    -> SystemEvent.SHIPPED;
+            case COMPLETED  -> SystemEvent.COMPLETED;
+            case CANCELLED  -> SystemEvent.CANCELLED;
+        };
+    }
+
+    private static String systemBodyFor(OrderStatus s) {
+        return switch (s) {
+            case PENDING    -> "Order placed";
+            case PAID       -> "Payment received";
+            case SHIPPED    -> "Item shipped";
+            case COMPLETED  -> "Transaction completed";
+            case CANCELLED  -> "Order cancelled";
+        };
+    }
+}
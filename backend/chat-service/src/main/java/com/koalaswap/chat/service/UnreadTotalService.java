@@ -0,0 +1,178 @@
+// src/main/java/com/koalaswap/chat/service/UnreadTotalService.java
+package com.koalaswap.chat.service;
+
+import com.koalaswap.chat.ws.WsPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * 用户未读总数（角标）
+ * - Redis 计数器 chat:unread:{uid}；GET /api/chat/unread-total 命中即返回，缺失时一条 SUM 查询后写回
+ * - 新消息/系统消息：提交后 INCRBY（仅当计数器已存在；不存在时等下次读取再计算）
+ * - 已读/软删：未读由 SQL 重算（见 ReadReceiptBuffer），对应用户的总数按 SQL 重新汇总
+ * - 每次变化都通过 WsPublisher 合并推送到 /user/queue/chat
+ * - 定时对账：扫描已有计数器，按 conversation_participants 重新汇总，修正并发窗口内的偏差
+ */
+@Service
+public class UnreadTotalService {
+    private static final Logger log = LoggerFactory.getLogger(UnreadTotalService.class);
+
+    private static final String KEY_PREFIX = "chat:unread:";
+
+    /** 软删的会话不在列表中显示，也不计入角标 */
+    private static final String SUM_SQL = """
+        select user_id, coalesce(sum(unread_count), 0)
+        from conversation_participants
+        where user_id = any(?) and deleted_at is null
+        group by user_id
+        """;
+
+    /** 计数器存在才自增，返回新值；不存在返回 nil */
+    private static final DefaultRedisScript<Long> INCR_IF_EXISTS = new DefaultRedisScript<>("""
+        if redis.call('EXISTS', KEYS[1]) == 1 then
+          return redis.call('INCRBY', KEYS[1], ARGV[1])
+        end
+        return nil
+        """, Long.class);
+
+    private final StringRedisTemplate redis;
+    private final JdbcTemplate jdbc;
+    private final WsPublisher ws;
+    private final Duration ttl;
+    private final int reconcileBatch;
+
+    public UnreadTotalService(StringRedisTemplate redis, JdbcTemplate jdbc, WsPublisher ws,
+                              @Value("${chat.unread-total.ttl:P1D}") Duration ttl,
+                              @Value("${chat.unread-total.reconcile-batch:500}") int reconcileBatch) {
+        this.redis = redis;
+        this.jdbc = jdbc;
+        this.ws = ws;
+        this.ttl = ttl;
+        this.reconcileBatch = reconcileBatch;
+    }
+
+    /** 当前未读总数：优先 Redis；缺失或 Redis 异常时按 SQL 汇总 */
+    public long total(UUID userId) {
+        try {
+            String v = redis.opsForValue().get(key(userId));
+            if (v != null) return Long.parseLong(v);
+        } catch (Exception e) {
+            log.warn("unread total read failed for {}: {}", userId, e.toString());
+        }
+        return recomputeNow(List.of(userId), false).getOrDefault(userId, 0L);
+    }
+
+    /** 新消息到达：提交后给这些用户 +n */
+    public void increment(int n, UUID... userIds) {
+        afterCommit(() -> {
+            for (UUID uid : userIds) {
+                if (uid == null) continue;
+                Long total = redis.execute(INCR_IF_EXISTS, List.of(key(uid)), String.valueOf(n));
+                if (total != null) ws.hintUnreadTotal(uid, total);
+            }
+        });
+    }
+
+    /** 未读被重算（已读落库/软删）：提交后按 SQL 重新汇总这些用户 */
+    public void recompute(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) return;
+        var users = List.copyOf(userIds);
+        afterCommit(() -> recomputeNow(users, true));
+    }
+
+    @Scheduled(fixedDelayString = "${chat.unread-total.reconcile-interval:PT5M}")
+    public void reconcile() {
+        var options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(reconcileBatch).build();
+        List<UUID> batch = new ArrayList<>();
+        try (Cursor<String> cursor = redis.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(UUID.fromString(cursor.next().substring(KEY_PREFIX.length())));
+                if (batch.size() >= reconcileBatch) {
+                    reconcileBatch(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) reconcileBatch(batch);
+        } catch (Exception e) {
+            log.warn("unread total reconcile failed: {}", e.toString());
+        }
+    }
+
+    // ---------- 私有方法 ----------
+
+    /** 只修正与 SQL 不一致的计数器，并推送修正后的值 */
+    private void reconcileBatch(List<UUID> users) {
+        var actual = sum(users);
+        var cached = redis.opsForValue().multiGet(users.stream().map(UnreadTotalService::key).toList());
+        for (int i = 0; i < users.size(); i++) {
+            UUID uid = users.get(i);
+            long expected = actual.getOrDefault(uid, 0L);
+            String current = cached == null ? null : cached.get(i);
+            if (current != null && !Objects.equals(current, String.valueOf(expected))) {
+                redis.opsForValue().set(key(uid), String.valueOf(expected), ttl);
+                ws.hintUnreadTotal(uid, expected);
+            }
+        }
+    }
+
+    private Map<UUID, Long> recomputeNow(List<UUID> users, boolean push) {
+        var totals = sum(users);
+        for (UUID uid : users) {
+            long total = totals.getOrDefault(uid, 0L);
+            totals.put(uid, total);
+            try {
+                redis.opsForValue().set(key(uid), String.valueOf(total), ttl);
+                if (push) ws.hintUnreadTotal(uid, total);
+            } catch (Exception e) {
+                log.warn("unread total write failed for {}: {}", uid, e.toString());
+            }
+        }
+        return totals;
+    }
+
+    private Map<UUID, Long> sum(List<UUID> users) {
+        Map<UUID, Long> out = new HashMap<>();
+        jdbc.query(SUM_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", users.toArray())),
+                rs -> { out.put(rs.getObject(1, UUID.class), rs.getLong(2)); });
+        return out;
+    }
+
+    private static String key(UUID userId) { return KEY_PREFIX + userId; }
+
+    /** 事务提交后执行；无事务时立即执行。Redis 失败不影响主流程 */
+    private static void afterCommit(Runnable action) {
+        Runnable safe = () -> {
+            try { action.run(); } catch (Exception e) { log.warn("unread total update failed: {}", e.toString()); }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            safe.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                safe.run();
+            }
+        });
+    }
+}
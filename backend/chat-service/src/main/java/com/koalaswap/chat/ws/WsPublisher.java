@@ -1,19 +1,46 @@
 package com.koalaswap.chat.ws;
 
 import com.koalaswap.chat.dto.MessageResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class WsPublisher {
+    private static final Logger log = LoggerFactory.getLogger(WsPublisher.class);
+
+    /** 按 (user_id, conversation_id) 成对取未读数；两个数组按下标配对 */
+    private static final String UNREAD_SQL = """
+        select p.user_id, p.conversation_id, p.unread_count
+        from conversation_participants p
+        join unnest(?, ?) as t(user_id, conversation_id)
+          on p.user_id = t.user_id and p.conversation_id = t.conversation_id
+        """;
 
     private final SimpMessagingTemplate template;
+    private final JdbcTemplate jdbc;
+
+    /** 待推送的收件箱提示：userId -> 变化的会话 id（窗口内合并） */
+    private final Map<UUID, Set<UUID>> pendingInbox = new ConcurrentHashMap<>();
+    /** 待推送的未读总数：userId -> 最新值（窗口内只推最后一次） */
+    private final Map<UUID, Long> pendingTotals = new ConcurrentHashMap<>();
 
-    public WsPublisher(SimpMessagingTemplate template) {
+    public WsPublisher(SimpMessagingTemplate template, JdbcTemplate jdbc) {
         this.template = template;
+        this.jdbc = jdbc;
     }
 
     /** 推送新的消息到会话订阅者 */
@@ -28,6 +55,31 @@ public class WsPublisher {
         template.convertAndSendToUser(userId.toString(), "/queue/chat", payload);
     }
 
+    /**
+     * 收件箱变化提示（合并推送）：只登记“哪个用户的哪个会话变了”，不立即推送。
+     * 窗口（chat.ws.inbox-hint.window，默认 250ms）到期后每个用户只发一帧：
+     * { kind: CONV_UPDATED, conversationIds: [...], unread: { 会话id: 未读数 } }，
+     * 客户端可据此就地更新列表，无需重新拉取 /api/chat/conversations。
+     */
+    public void hintInboxChanged(UUID userId, UUID conversationId) {
+        if (userId == null || conversationId == null) return;
+        // compute 与 flush 中的 remove 针对同一 key 互斥：不会把 id 加进已被取走的集合
+        pendingInbox.compute(userId, (k, ids) -> {
+            if (ids == null) ids = new LinkedHashSet<>();
+            ids.add(conversationId);
+            return ids;
+        });
+    }
+
+    /**
+     * 未读总数变化（合并推送）：与收件箱提示同一窗口；同窗口内有会话变化时并入 CONV_UPDATED 帧的 unreadTotal，
+     * 否则单独发 { kind: UNREAD_TOTAL, total }
+     */
+    public void hintUnreadTotal(UUID userId, long total) {
+        if (userId == null) return;
+        pendingTotals.put(userId, total);
+    }
+
     /** ✅ 新增：推送读回执（/topic/chat/conversations/{id}/read） */
     public void publishRead(UUID conversationId, UUID readerId, UUID readTo) {
         String dest = "/topic/chat/conversations/" + conversationId + "/read";
@@ -36,4 +88,68 @@ public class WsPublisher {
                 "readTo", readTo == null ? null : readTo.toString()
         ));
     }
+
+    @Scheduled(fixedDelayString = "${chat.ws.inbox-hint.window:PT0.25S}")
+    public void flushInboxHints() {
+        if (pendingInbox.isEmpty() && pendingTotals.isEmpty()) return;
+
+        Map<UUID, Set<UUID>> batch = new HashMap<>();
+        for (UUID userId : List.copyOf(pendingInbox.keySet())) {
+            var ids = pendingInbox.remove(userId);
+            if (ids != null && !ids.isEmpty()) batch.put(userId, ids);
+        }
+        Map<UUID, Long> totals = new HashMap<>();
+        for (UUID userId : List.copyOf(pendingTotals.keySet())) {
+            var total = pendingTotals.remove(userId);
+            if (total != null) totals.put(userId, total);
+        }
+
+        Map<UUID, Map<String, Integer>> unread = batch.isEmpty() ? Map.of() : loadUnread(batch);
+        batch.forEach((userId, ids) -> {
+            var counts = unread.getOrDefault(userId, Map.of());
+            var convIds = ids.stream().map(UUID::toString).toList();
+            Map<String, Object> frame = new HashMap<>();
+            frame.put("kind", "CONV_UPDATED");
+            frame.put("conversationIds", convIds);
+            frame.put("unread", counts);
+            var total = totals.remove(userId);
+            if (total != null) frame.put("unreadTotal", total);
+            send(userId, frame);
+        });
+        totals.forEach((userId, total) -> send(userId, Map.of("kind", "UNREAD_TOTAL", "total", total)));
+    }
+
+    private void send(UUID userId, Object frame) {
+        try {
+            publishMyInboxChanged(userId, frame);
+        } catch (Exception e) {
+            log.warn("inbox hint push failed for {}: {}", userId, e.toString());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try { flushInboxHints(); } catch (Exception e) { log.warn("inbox hint flush on shutdown failed: {}", e.toString()); }
+    }
+
+    /** 一条 SQL 取本批全部 (用户, 会话) 的未读数；失败时只推 id，客户端可回退为重新拉取 */
+    private Map<UUID, Map<String, Integer>> loadUnread(Map<UUID, Set<UUID>> batch) {
+        List<UUID> users = new ArrayList<>();
+        List<UUID> convs = new ArrayList<>();
+        batch.forEach((userId, ids) -> ids.forEach(c -> { users.add(userId); convs.add(c); }));
+
+        Map<UUID, Map<String, Integer>> out = new HashMap<>();
+        try {
+            jdbc.query(UNREAD_SQL, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", users.toArray()));
+                ps.setArray(2, ps.getConnection().createArrayOf("uuid", convs.toArray()));
+            }, rs -> {
+                out.computeIfAbsent(rs.getObject(1, UUID.class), k -> new HashMap<>())
+                        .put(rs.getObject(2, UUID.class).toString(), rs.getInt(3));
+            });
+        } catch (Exception e) {
+            log.warn("inbox hint unread lookup failed ({} users): {}", batch.size(), e.toString());
+        }
+        return out;
+    }
 }
@@ -0,0 +1,185 @@
+// src/test/java/com/koalaswap/chat/config/BrokerRelayMultiNodeTest.java
+package com.koalaswap.chat.config;
+
+import com.koalaswap.chat.security.StompAuthChannelInterceptor;
+import com.koalaswap.common.security.JwtService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * chat.ws.broker.mode=relay 的多实例验证：两个节点共用一个 Artemis，
+ * 客户端连在节点 A，消息从节点 B 发出，客户端必须能收到（/topic 与 /user/queue 两种目的地）。
+ * 节点只装配 WebSocket 相关配置（WebSocketConfig + 鉴权拦截器，uid 头兜底鉴权），不依赖数据库/Redis。
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class BrokerRelayMultiNodeTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /** 与 infra/docker-compose.yml 的 stomp-broker 相同的镜像与账号 */
+    @Container
+    static final GenericContainer<?> ARTEMIS = new GenericContainer<>("apache/activemq-artemis:2.31.2-alpine")
+            .withEnv("ARTEMIS_USER", "guest")
+            .withEnv("ARTEMIS_PASSWORD", "guest")
+            .withEnv("ANONYMOUS_LOGIN", "false")
+            .withExposedPorts(61613)
+            .waitingFor(Wait.forListeningPort());
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startNodes() throws Exception {
+        nodeA = startNode();
+        nodeB = startNode();
+        awaitBrokerAvailable(nodeA);
+        awaitBrokerAvailable(nodeB);
+        stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new StringMessageConverter());
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (stompClient != null) stompClient.stop();
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+    }
+
+    @Test
+    void topicMessageFromOtherNodeReachesSubscriber() throws Exception {
+        var session = connect(nodeA, UUID.randomUUID().toString());
+        var received = subscribe(session, "/topic/chat/conversations/" + UUID.randomUUID());
+
+        nodeB.getBean(SimpMessagingTemplate.class).convertAndSend(received.destination(), "hello-topic");
+
+        assertThat(received.queue().poll(TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isEqualTo("hello-topic");
+        session.disconnect();
+    }
+
+    @Test
+    void userMessageFromOtherNodeReachesUser() throws Exception {
+        var uid = UUID.randomUUID().toString();
+        var session = connect(nodeA, uid);
+        var received = subscribe(session, "/user/queue/chat");
+
+        // 节点 B 本地没有该用户的会话：经 /topic/unresolved-user-destination 广播，由节点 A 解析投递
+        nodeB.getBean(SimpMessagingTemplate.class).convertAndSendToUser(uid, "/queue/chat", "hello-user");
+
+        assertThat(received.queue().poll(TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isEqualTo("hello-user");
+        session.disconnect();
+    }
+
+    // ---------- 私有方法 ----------
+
+    private record Subscription(String destination, BlockingQueue<String> queue) {}
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(RelayNode.class).run(
+                "--server.port=0",
+                "--chat.ws.broker.mode=relay",
+                "--chat.ws.broker.relay-host=" + ARTEMIS.getHost(),
+                "--chat.ws.broker.relay-port=" + ARTEMIS.getMappedPort(61613),
+                "--chat.ws.broker.client-login=guest",
+                "--chat.ws.broker.client-passcode=guest",
+                "--chat.ws.broker.system-login=guest",
+                "--chat.ws.broker.system-passcode=guest");
+    }
+
+    /** 中继的系统连接建立后才会转发消息；之前发出的消息会被丢弃 */
+    private static void awaitBrokerAvailable(ConfigurableApplicationContext node) throws InterruptedException {
+        var relay = node.getBean("stompBrokerRelayMessageHandler", AbstractBrokerMessageHandler.class);
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!relay.isBrokerAvailable()) {
+            assertThat(System.nanoTime()).as("broker relay available").isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private static StompSession connect(ConfigurableApplicationContext node, String uid) throws Exception {
+        int port = ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+        var connectHeaders = new StompHeaders();
+        connectHeaders.add("uid", uid);
+        var session = stompClient.connectAsync("ws://localhost:" + port + "/ws/chat",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {})
+                .get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        session.setAutoReceipt(true);
+        return session;
+    }
+
+    /** 订阅并等待 Broker 回执，确保订阅已生效再发送 */
+    private static Subscription subscribe(StompSession session, String destination) throws Exception {
+        BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        var subscribed = new CompletableFuture<Void>();
+        var subscription = session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                queue.add((String) payload);
+            }
+        });
+        subscription.addReceiptTask(() -> subscribed.complete(null));
+        subscription.addReceiptLostTask(() -> subscribed.completeExceptionally(new IllegalStateException("receipt lost")));
+        subscribed.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        return new Subscription(destination, queue);
+    }
+
+    /** 单个 chat 节点：内嵌 Web 容器 + WebSocketConfig（relay 模式） */
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class
+    })
+    @Import(WebSocketConfig.class)
+    static class RelayNode {
+        @Bean
+        StompAuthChannelInterceptor stompAuthChannelInterceptor() {
+            return new StompAuthChannelInterceptor(mock(JwtService.class));
+        }
+    }
+}
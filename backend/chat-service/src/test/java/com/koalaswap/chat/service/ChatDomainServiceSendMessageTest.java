@@ -0,0 +1,94 @@
+// backend/chat-service/src/test/java/com/koalaswap/chat/service/ChatDomainServiceSendMessageTest.java
+// 发消息到不存在的会话：seq 触发器抛出的外键错误必须映射为 EntityNotFoundException（404），而不是 500
+package com.koalaswap.chat.service;
+
+import com.koalaswap.chat.client.OrderClient;
+import com.koalaswap.chat.client.ProductClient;
+import com.koalaswap.chat.client.UserClient;
+import com.koalaswap.chat.model.MessageType;
+import com.koalaswap.chat.repository.ConversationParticipantRepository;
+import com.koalaswap.chat.repository.ConversationRepository;
+import com.koalaswap.chat.repository.MessageRepository;
+import com.koalaswap.chat.security.MembershipCache;
+import com.koalaswap.chat.ws.WsPublisher;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 库结构与 infra/docker-compose.yml 一致：按顺序执行 database/ 下的初始化脚本（含 v2.7 的触发器约束名）。
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class ChatDomainServiceSendMessageTest {
+
+    private static final Path DATABASE_DIR = Path.of("../../database");
+    private static final List<String> INIT_SCRIPTS = List.of(
+            "KoalaSwap_Schema_v2.0.sql", "KoalaSwap_v2.1.sql", "KoalaSwap_v2.2.sql", "KoalaSwap_v2.3.sql",
+            "KoalaSwap_v2.4.sql", "KoalaSwap_v2.5.sql", "KoalaSwap_v2.6.sql", "KoalaSwap_v2.7.sql");
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = initScripts(new PostgreSQLContainer<>("postgres:15"));
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired ConversationRepository conversations;
+    @Autowired ConversationParticipantRepository participants;
+    @Autowired MessageRepository messages;
+    @Autowired JdbcTemplate jdbc;
+
+    private ChatDomainService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChatDomainService(conversations, participants, messages,
+                mock(WsPublisher.class), mock(ProductClient.class), mock(OrderClient.class), mock(UserClient.class),
+                mock(ReadReceiptBuffer.class), mock(MembershipCache.class), jdbc,
+                mock(InboxIndexService.class), mock(UnreadTotalService.class));
+    }
+
+    @Test
+    void sendToMissingConversationIsNotFound() {
+        var sender = jdbc.queryForObject("""
+                insert into users (email, password_hash, display_name)
+                values (?, 'x', 'sender') returning id
+                """, UUID.class, "sender-" + UUID.randomUUID() + "@example.com");
+
+        assertThatThrownBy(() -> service.sendMessage(UUID.randomUUID(), sender, MessageType.TEXT, "hi", null))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("Conversation not found");
+    }
+
+    /** 与 compose 的挂载顺序一致（01_schema.sql、02_v2.1.sql ...） */
+    private static PostgreSQLContainer<?> initScripts(PostgreSQLContainer<?> container) {
+        for (int i = 0; i < INIT_SCRIPTS.size(); i++) {
+            var script = INIT_SCRIPTS.get(i);
+            container.withCopyFileToContainer(MountableFile.forHostPath(DATABASE_DIR.resolve(script)),
+                    "/docker-entrypoint-initdb.d/%02d_%s".formatted(i + 1, script));
+        }
+        return container;
+    }
+}
@@ -6,10 +6,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.UUID;
 
 /** order-service 调 product-service 的轻量客户端 */
@@ -27,13 +29,21 @@ public class ProductClient {
         return RestClient.builder().baseUrl(productServiceBaseUrl).build();
     }
 
-    /** 读取商品（外部接口 /api/products/{id}），用于下单前校验状态/卖家等 */
-    public ProductBrief getProduct(UUID id) {
-        var type = new ParameterizedTypeReference<ApiResponse<ProductBrief>>() {};
-        var resp = client().get()
-                .uri("/api/products/{id}", id)
+    /**
+     * 下单占用（内部接口 /api/internal/products/{id}/reserve-for-order）：
+     * 一次调用完成 ACTIVE -> RESERVED 并返回卖家/价格；reserved=false 时 status 为商品当前状态
+     */
+    public Reservation reserveForOrder(UUID productId, UUID buyerId) {
+        var type = new ParameterizedTypeReference<ApiResponse<Reservation>>() {};
+        var resp = client().post()
+                .uri(b -> b.path("/api/internal/products/{id}/reserve-for-order")
+                        .queryParam("buyerId", buyerId)
+                        .build(productId))
                 .header(HttpHeaders.ACCEPT, "application/json")
                 .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, (req, res) -> {
+                    throw new IllegalArgumentException("Item does not exist.");
+                })
                 .body(type);
         if (resp == null || !resp.ok() || resp.data() == null) {
             throw new IllegalArgumentException("Item does not exist.");
@@ -41,10 +51,13 @@ public class ProductClient {
         return resp.data();
     }
 
-    /** 占用：ACTIVE -> RESERVED */
-    public boolean reserve(UUID productId) {
+    /** 续约/确认占用：把商品侧的占用租约延到 until（商品已不在占用中返回 false） */
+    public boolean renewLease(UUID productId, Instant until) {
         var type = new ParameterizedTypeReference<ApiResponse<Boolean>>() {};
-        var resp = client().post().uri("/api/internal/products/{id}/reserve", productId).retrieve().body(type);
+        var resp = client().post()
+                .uri(b -> b.path("/api/internal/products/{id}/lease").queryParam("until", until).build(productId))
+                .retrieve()
+                .body(type);
         return resp != null && Boolean.TRUE.equals(resp.data());
     }
 
@@ -55,6 +68,16 @@ public class ProductClient {
         return resp != null && Boolean.TRUE.equals(resp.data());
     }
 
+    /** 订单过期释放：仅当商品仍为 RESERVED 且租约不晚于 until（该订单的占用）时 RESERVED -> ACTIVE */
+    public boolean releaseExpired(UUID productId, Instant until) {
+        var type = new ParameterizedTypeReference<ApiResponse<Boolean>>() {};
+        var resp = client().post()
+                .uri(b -> b.path("/api/internal/products/{id}/release-expired").queryParam("until", until).build(productId))
+                .retrieve()
+                .body(type);
+        return resp != null && Boolean.TRUE.equals(resp.data());
+    }
+
     /** 标记 SOLD（支付后） */
     public boolean markSold(UUID productId) {
         var type = new ParameterizedTypeReference<ApiResponse<Boolean>>() {};
@@ -62,17 +85,19 @@ public class ProductClient {
         return resp != null && Boolean.TRUE.equals(resp.data());
     }
 
-    /** 新增：无条件激活（取消/超时后把 SOLD/RESERVED/HIDDEN 一律切回 ACTIVE） */
+    /** 新增：无条件激活（取消后把 SOLD/RESERVED/HIDDEN 一律切回 ACTIVE；超时释放走 releaseExpired） */
     public boolean activate(UUID productId) {
         var type = new ParameterizedTypeReference<ApiResponse<Boolean>>() {};
         var resp = client().post().uri("/api/internal/products/{id}/activate", productId).retrieve().body(type);
         return resp != null && Boolean.TRUE.equals(resp.data());
     }
 
-    /** 与 product-service 的 ProductRes 字段保持一致的轻量视图 */
+    /** 与 product-service 的 ProductStatus 一致 */
     public enum ProductStatus { ACTIVE, RESERVED, SOLD, HIDDEN }
 
-    public record ProductBrief(
+    /** 与 product-service 的 ReserveRes 字段保持一致 */
+    public record Reservation(
+            boolean reserved,
             UUID id,
             UUID sellerId,
             String title,
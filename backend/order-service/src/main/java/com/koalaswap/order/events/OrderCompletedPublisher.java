@@ -2,35 +2,28 @@ package com.koalaswap.order.events;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.event.TransactionalEventListener;
 
-@Slf4j @Component @RequiredArgsConstructor
+/** 订单完成事件写入发件箱（review-service 订阅 orders:completed 建立评价槽位）；与订单同一事务落库 */
+@Component @RequiredArgsConstructor
 public class OrderCompletedPublisher {
-    private final StringRedisTemplate redis;
+    private final OrderOutbox outbox;
     private final ObjectMapper om = new ObjectMapper();
 
     @Value("${app.order-events.channel:orders:completed}")
     private String channel;
 
-    @TransactionalEventListener
+    @EventListener
     public void onCompleted(OrderCompletedEvent e) {
-        try {
-            String payload = om.createObjectNode()
-                    .put("orderId",   e.orderId().toString())
-                    .put("buyerId",   e.buyerId().toString())
-                    .put("sellerId",  e.sellerId().toString())
-                    .put("productId", e.productId().toString())
-                    .put("completedAt", e.completedAt().toString())
-                    .toString();
-            redis.convertAndSend(channel, payload);
-            log.debug("order-completed published: {}", payload);
-        } catch (Exception ex) {
-            log.warn("publish order-completed failed: {}", ex.toString());
-        }
+        String payload = om.createObjectNode()
+                .put("orderId",   e.orderId().toString())
+                .put("buyerId",   e.buyerId().toString())
+                .put("sellerId",  e.sellerId().toString())
+                .put("productId", e.productId().toString())
+                .put("completedAt", e.completedAt().toString())
+                .toString();
+        outbox.append(channel, payload);
     }
 }
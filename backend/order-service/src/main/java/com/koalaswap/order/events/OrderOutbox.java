@@ -0,0 +1,32 @@
+package com.koalaswap.order.events;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 订单事件发件箱（表 order_outbox，见 KoalaSwap_v2.5）
+ * 事件与订单状态在同一事务内写入：事务回滚则事件一并消失，提交后由 OrderOutboxRelay 异步发布到 Redis。
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderOutbox {
+
+    private static final String INSERT_SQL =
+            "insert into order_outbox (channel, payload, created_at) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+
+    /** 写入一条待发布事件；必须在业务事务内调用 */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String channel, String payload) {
+        // TIMESTAMP 列按 UTC 存储（hibernate.jdbc.time_zone=UTC），relay 据此计算投递延迟
+        jdbc.update(INSERT_SQL, channel, payload, LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,164 @@
+package com.koalaswap.order.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发件箱 relay：把 order_outbox 中未发送的事件批量发布到 Redis
+ * - 每轮在一个事务内 SELECT ... FOR UPDATE SKIP LOCKED 领取一批（多副本互不重复领取），
+ *   用一次 pipeline 发布，再一条 UPDATE 标记 sent_at；积压时连续多批直到清空
+ * - 发布或标记失败则整批回滚，下一轮重发（至少一次投递；下游按业务键幂等）
+ * - 业务事务只多一条 INSERT，发布不占用 pay/ship/confirm 的请求线程
+ * - 指标：order.outbox.published / order.outbox.publish.failures / order.outbox.delivery.lag（写入到发布的延迟）
+ *         order.outbox.backlog / order.outbox.oldest.age.seconds（定时刷新）
+ */
+@Slf4j
+@Component
+public class OrderOutboxRelay {
+
+    private static final String CLAIM_SQL = """
+        select id, channel, payload, created_at
+        from order_outbox
+        where sent_at is null
+        order by id
+        limit ?
+        for update skip locked
+        """;
+
+    private static final String MARK_SQL = "update order_outbox set sent_at = ? where id = any(?)";
+
+    private static final String BACKLOG_SQL =
+            "select count(*), min(created_at) from order_outbox where sent_at is null";
+
+    private static final String PURGE_SQL = """
+        delete from order_outbox
+        where id in (select id from order_outbox where sent_at < ? order by sent_at limit ?)
+        """;
+
+    /** 每次清理最多删除的行数 */
+    private static final int PURGE_LIMIT = 5000;
+
+    private record Row(long id, String channel, String payload, Instant createdAt) {}
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final StringRedisTemplate redis;
+    private final int batchSize;
+    private final Duration retention;
+
+    private final Counter published;
+    private final Counter failures;
+    private final Timer lag;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong oldestAgeSeconds = new AtomicLong();
+
+    public OrderOutboxRelay(JdbcTemplate jdbc, PlatformTransactionManager txManager, StringRedisTemplate redis,
+                            MeterRegistry meters,
+                            @Value("${app.outbox.batch-size:200}") int batchSize,
+                            @Value("${app.outbox.retention:P7D}") Duration retention) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.redis = redis;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.published = Counter.builder("order.outbox.published")
+                .description("Order events published from the outbox")
+                .register(meters);
+        this.failures = Counter.builder("order.outbox.publish.failures")
+                .description("Outbox relay batches rolled back for retry")
+                .register(meters);
+        this.lag = Timer.builder("order.outbox.delivery.lag")
+                .description("Time from outbox insert to Redis publish")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meters);
+        Gauge.builder("order.outbox.backlog", backlog, AtomicLong::get)
+                .description("Unsent outbox rows")
+                .register(meters);
+        Gauge.builder("order.outbox.oldest.age.seconds", oldestAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest unsent outbox row")
+                .register(meters);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:PT0.2S}")
+    public void relay() {
+        try {
+            int n;
+            do {
+                n = relayBatch(); // 满批说明还有积压，继续下一批
+            } while (n >= batchSize);
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("order outbox relay failed, will retry: {}", e.toString());
+        }
+    }
+
+    /** 定时刷新积压指标并清理过期的已发送行 */
+    @Scheduled(fixedDelayString = "${app.outbox.maintenance-interval:PT15S}")
+    public void maintain() {
+        try {
+            var now = Instant.now();
+            jdbc.query(BACKLOG_SQL, rs -> {
+                backlog.set(rs.getLong(1));
+                var oldest = rs.getObject(2, LocalDateTime.class);
+                oldestAgeSeconds.set(oldest == null ? 0
+                        : Math.max(0, Duration.between(oldest.toInstant(ZoneOffset.UTC), now).toSeconds()));
+            });
+            int purged = jdbc.update(PURGE_SQL, utc(now.minus(retention)), PURGE_LIMIT);
+            if (purged > 0) log.debug("order outbox purged {} sent rows", purged);
+        } catch (Exception e) {
+            log.warn("order outbox maintenance failed: {}", e.toString());
+        }
+    }
+
+    // ---------- 私有方法 ----------
+
+    /** 领取 -> 发布 -> 标记，同一事务；返回本批行数 */
+    private int relayBatch() {
+        Integer n = tx.execute(status -> {
+            List<Row> rows = jdbc.query(CLAIM_SQL, (rs, i) -> new Row(
+                    rs.getLong(1), rs.getString(2), rs.getString(3),
+                    rs.getObject(4, LocalDateTime.class).toInstant(ZoneOffset.UTC)), batchSize);
+            if (rows.isEmpty()) return 0;
+
+            redis.executePipelined((RedisCallback<Object>) conn -> {
+                for (var r : rows) {
+                    conn.publish(r.channel().getBytes(StandardCharsets.UTF_8), r.payload().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+
+            var now = Instant.now();
+            jdbc.update(MARK_SQL, ps -> {
+                ps.setObject(1, utc(now));
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", rows.stream().map(Row::id).toArray()));
+            });
+            published.increment(rows.size());
+            rows.forEach(r -> lag.record(Duration.between(r.createdAt(), now)));
+            return rows.size();
+        });
+        return n == null ? 0 : n;
+    }
+
+    private static LocalDateTime utc(Instant at) {
+        return LocalDateTime.ofInstant(at, ZoneOffset.UTC);
+    }
+}
@@ -1,40 +1,208 @@
 package com.koalaswap.order.expiration;
 
-import com.koalaswap.order.model.OrderStatus;
-import com.koalaswap.order.repository.OrderRepository;
+import com.koalaswap.order.client.ProductClient;
 import com.koalaswap.order.service.OrderService;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.beans.factory.annotation.Value;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * PENDING 订单自动过期
+ * - 轮询（默认每秒）从 OrderExpiryQueue 原子取出已到期的订单，误差约为一个轮询间隔
+ * - 取出的订单按小批拆分、并行处理：每批一条条件 UPDATE（OrderService.expirePending），提交后逐个释放商品占用
+ * - 释放是有条件的（release-expired）：商品租约晚于该订单的租约终点时，说明已被其他订单占用，不释放
+ * - 商品释放失败进入重试队列；订单批处理失败则放回队列稍后重试
+ * - 下单后商品占用续约失败的，按重试队列到期重新续约（ReservationLeaseRenewer）
+ * - 启动后及之后定期按 orders 表对账：把全部 PENDING 订单（幂等地）写回队列，补上 Redis 丢失/取出后崩溃的成员，
+ *   并为未超时的 PENDING 订单续约商品占用；Redis 不可用时直接按 SQL 过期已超时的订单
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class OrderExpirationJob {
 
-    private final OrderRepository orders;
+    private static final String PENDING_SQL = "select id, product_id, created_at from orders where status = 'PENDING'";
+
+    /** 对账时每次写入队列的条数 */
+    private static final int RECONCILE_CHUNK = 1000;
+
     private final OrderService orderService;
+    private final OrderExpiryQueue queue;
+    private final ProductClient productClient;
+    private final ReservationLeaseRenewer leaseRenewer;
+    private final JdbcTemplate jdbc;
+    private final int claimSize;
+    private final int batchSize;
+    private final Duration retryDelay;
+    private final ExecutorService workers;
 
-    @Value("${app.order.pending-expire-minutes:30}")
-    private int expireMinutes;
+    public OrderExpirationJob(OrderService orderService, OrderExpiryQueue queue,
+                              ProductClient productClient, ReservationLeaseRenewer leaseRenewer, JdbcTemplate jdbc,
+                              @Value("${app.order.expiry.claim-size:500}") int claimSize,
+                              @Value("${app.order.expiry.batch-size:50}") int batchSize,
+                              @Value("${app.order.expiry.parallelism:8}") int parallelism,
+                              @Value("${app.order.expiry.retry-delay:PT30S}") Duration retryDelay) {
+        this.orderService = orderService;
+        this.queue = queue;
+        this.productClient = productClient;
+        this.leaseRenewer = leaseRenewer;
+        this.jdbc = jdbc;
+        this.claimSize = claimSize;
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+        this.workers = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("order-expiry-", 0).daemon(true).factory());
+    }
 
-    /** 每分钟扫一次，每次最多处理 100 条（幂等） */
-    @Scheduled(fixedDelayString = "PT1M")
-    public void autoCancelExpired() {
+    /** 处理已到期的订单、待重试的商品释放与占用续约；处理完本轮才开始计时下一轮（fixedDelay），积压时自然限流 */
+    @Scheduled(fixedDelayString = "${app.order.expiry.poll-interval:PT1S}")
+    public void pollDue() {
         try {
-            var deadline = Instant.now().minusSeconds(expireMinutes * 60L);
-            var page = orders.findByStatusAndCreatedAtBefore(OrderStatus.PENDING, deadline, PageRequest.of(0, 100));
-            page.forEach(o -> {
-                boolean ok = orderService.expireAndCancel(o.getId());
-                if (ok) log.debug("order expired & cancelled: {}", o.getId());
+            var now = Instant.now();
+            List<UUID> due;
+            do {
+                due = queue.claimDueOrders(now, claimSize);
+                if (!due.isEmpty()) expire(due, now);
+            } while (due.size() >= claimSize);
+
+            var releases = queue.claimDueReleases(now, claimSize);
+            if (!releases.isEmpty()) {
+                awaitAll(releases.stream().map(r -> workers.submit(() -> release(r))).toList());
+            }
+
+            var renewals = queue.claimDueRenewals(now, claimSize);
+            if (!renewals.isEmpty()) {
+                awaitAll(renewals.stream().map(r -> workers.submit(() -> leaseRenewer.renew(r))).toList());
+            }
+        } catch (Exception e) {
+            log.warn("order expiry poll error: {}", e.toString());
+        }
+    }
+
+    /** 启动后与之后定期：按 orders 表重建/校正队列，并为 PENDING 订单续约商品占用 */
+    @Scheduled(initialDelayString = "${app.order.expiry.rebuild-delay:PT10S}",
+               fixedDelayString = "${app.order.expiry.reconcile-interval:PT5M}")
+    public void reconcile() {
+        try {
+            var now = Instant.now();
+            Map<UUID, Instant> deadlines = new LinkedHashMap<>();
+            List<OrderExpiryQueue.LeaseRenewal> leases = new ArrayList<>();
+            jdbc.query(PENDING_SQL, rs -> {
+                // TIMESTAMP 列按 UTC 存储（hibernate.jdbc.time_zone=UTC）
+                var createdAt = rs.getObject(3, LocalDateTime.class).toInstant(ZoneOffset.UTC);
+                deadlines.put(rs.getObject(1, UUID.class), queue.deadlineOf(createdAt));
+                leases.add(new OrderExpiryQueue.LeaseRenewal(rs.getObject(2, UUID.class), queue.leaseUntil(createdAt)));
             });
+            Map<UUID, Instant> chunk = new HashMap<>();
+            for (var e : deadlines.entrySet()) {
+                chunk.put(e.getKey(), e.getValue());
+                if (chunk.size() >= RECONCILE_CHUNK) {
+                    requeueOrExpire(chunk, now);
+                    chunk = new HashMap<>();
+                }
+            }
+            requeueOrExpire(chunk, now);
+
+            // 补上续约请求与重试都丢失（如 Redis 同时不可用）的占用；已超时的订单由 renew 跳过
+            awaitAll(leases.stream().map(l -> workers.submit(() -> leaseRenewer.renew(l))).toList());
         } catch (Exception e) {
-            log.warn("autoCancelExpired error: {}", e.toString());
+            log.warn("order expiry reconcile error: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    // ---------- 私有方法 ----------
+
+    /** 按小批并行过期；等待全部完成 */
+    private void expire(List<UUID> ids, Instant now) {
+        var createdBefore = queue.createdBefore(now);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            var batch = ids.subList(i, Math.min(ids.size(), i + batchSize));
+            tasks.add(workers.submit(() -> expireBatch(batch, createdBefore, now)));
+        }
+        awaitAll(tasks);
+    }
+
+    private void expireBatch(List<UUID> ids, Instant createdBefore, Instant now) {
+        List<OrderService.ExpiredOrder> expired;
+        try {
+            expired = orderService.expirePending(ids, createdBefore);
+        } catch (Exception e) {
+            log.warn("order expiry batch failed ({} orders), requeued: {}", ids.size(), e.toString());
+            Map<UUID, Instant> retry = new HashMap<>();
+            ids.forEach(id -> retry.put(id, now.plus(retryDelay)));
+            try { queue.addAll(retry); } catch (Exception ex) { log.warn("order expiry requeue failed: {}", ex.toString()); }
+            return;
+        }
+        expired.forEach(o -> release(new OrderExpiryQueue.LeaseRelease(o.productId(), queue.leaseUntil(o.createdAt()))));
+        if (!expired.isEmpty()) log.debug("orders expired & cancelled: {}", expired.size());
+    }
+
+    /**
+     * 释放该订单的商品占用（RESERVED -> ACTIVE，租约不晚于订单租约终点时才生效）；
+     * 调用异常时进入重试队列（订单已取消，商品保持 RESERVED 不会被重复下单，最迟由商品侧清扫在租约到期后释放）
+     */
+    private void release(OrderExpiryQueue.LeaseRelease release) {
+        try {
+            if (!productClient.releaseExpired(release.productId(), release.until())) {
+                log.debug("product {} not released after order expiry (no longer reserved by this order)", release.productId());
+            }
+        } catch (Exception e) {
+            log.warn("product {} release failed, will retry: {}", release.productId(), e.toString());
+            try {
+                queue.retryRelease(release, Instant.now().plus(retryDelay));
+            } catch (Exception ex) {
+                log.warn("product {} release retry not queued: {}", release.productId(), ex.toString());
+            }
+        }
+    }
+
+    /** 写回队列；Redis 不可用时直接过期已超时的订单 */
+    private void requeueOrExpire(Map<UUID, Instant> deadlines, Instant now) {
+        if (deadlines.isEmpty()) return;
+        try {
+            queue.addAll(deadlines);
+        } catch (Exception e) {
+            log.warn("order expiry queue unavailable, expiring from SQL: {}", e.toString());
+            var due = deadlines.entrySet().stream()
+                    .filter(en -> !en.getValue().isAfter(now))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            if (!due.isEmpty()) expire(due, now);
+        }
+    }
+
+    private static void awaitAll(List<? extends Future<?>> tasks) {
+        for (var t : tasks) {
+            try {
+                t.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("order expiry task failed: {}", e.toString());
+            }
         }
     }
 }
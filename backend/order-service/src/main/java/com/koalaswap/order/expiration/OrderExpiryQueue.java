@@ -0,0 +1,154 @@
+package com.koalaswap.order.expiration;
+
+import com.koalaswap.order.events.OrderStatusChangedEvent;
+import com.koalaswap.order.model.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 订单过期延迟队列（Redis ZSET，member = 订单 id，score = 到期时间毫秒）
+ * - order:expiry           待过期的 PENDING 订单；下单提交后加入，支付/取消提交后移除
+ * - order:expiry:release   已过期但商品释放失败的 "商品id@租约到期毫秒"，score = 下次重试时间
+ * - order:expiry:renew     下单提交后续约商品占用失败的 "商品id@租约到期毫秒"，score = 下次重试时间
+ * 取出到期成员用 Lua 脚本（ZRANGEBYSCORE + ZREM）原子完成：多副本同时轮询时每个成员只会被一个副本取走
+ */
+@Slf4j
+@Component
+public class OrderExpiryQueue {
+
+    static final String ORDERS_KEY = "order:expiry";
+    static final String RELEASE_KEY = "order:expiry:release";
+    static final String RENEW_KEY = "order:expiry:renew";
+
+    /** 取出并移除 score <= ARGV[1] 的前 ARGV[2] 个成员 */
+    private static final DefaultRedisScript<List> CLAIM_DUE = new DefaultRedisScript<>("""
+        local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])
+        if #ids > 0 then
+          redis.call('ZREM', KEYS[1], unpack(ids))
+        end
+        return ids
+        """, List.class);
+
+    /** 待重试的占用续约：把商品占用延到 until */
+    public record LeaseRenewal(UUID productId, Instant until) {}
+
+    /** 待重试的过期释放：商品租约不晚于 until（仍是该订单的占用）时才释放 */
+    public record LeaseRelease(UUID productId, Instant until) {}
+
+    private final StringRedisTemplate redis;
+    private final int expireMinutes;
+    private final Duration reservationGrace;
+
+    public OrderExpiryQueue(StringRedisTemplate redis,
+                            @Value("${app.order.pending-expire-minutes:30}") int expireMinutes,
+                            @Value("${app.order.reservation-grace:PT5M}") Duration reservationGrace) {
+        this.redis = redis;
+        this.expireMinutes = expireMinutes;
+        this.reservationGrace = reservationGrace;
+    }
+
+    /** 下单时间 + 超时分钟数 */
+    public Instant deadlineOf(Instant createdAt) {
+        return createdAt.plusSeconds(expireMinutes * 60L);
+    }
+
+    /** 商品占用租约应续到的时间：订单过期时间 + 余量（过期任务延迟时不至于先被商品侧释放） */
+    public Instant leaseUntil(Instant createdAt) {
+        return deadlineOf(createdAt).plus(reservationGrace);
+    }
+
+    /** 在 now 时刻已超时的订单的下单时间上界 */
+    public Instant createdBefore(Instant now) {
+        return now.minusSeconds(expireMinutes * 60L);
+    }
+
+    /** 状态变更提交后维护队列：PENDING 加入，其余状态移除（失败只记日志，由定时对账补回） */
+    @TransactionalEventListener
+    public void onStatusChanged(OrderStatusChangedEvent e) {
+        try {
+            if (e.newStatus() == OrderStatus.PENDING) {
+                var createdAt = e.occurredAt() == null ? Instant.now() : e.occurredAt();
+                redis.opsForZSet().add(ORDERS_KEY, e.orderId().toString(), deadlineOf(createdAt).toEpochMilli());
+            } else {
+                redis.opsForZSet().remove(ORDERS_KEY, e.orderId().toString());
+            }
+        } catch (Exception ex) {
+            log.warn("order expiry queue update failed for {}: {}", e.orderId(), ex.toString());
+        }
+    }
+
+    /** 取走已到期的订单 id（原子，多副本安全） */
+    public List<UUID> claimDueOrders(Instant now, int limit) {
+        return claim(ORDERS_KEY, now, limit);
+    }
+
+    /** 取走到了重试时间的过期释放 */
+    public List<LeaseRelease> claimDueReleases(Instant now, int limit) {
+        return claimRaw(RELEASE_KEY, now, limit).stream()
+                .map(m -> new LeaseRelease(productOf(m), untilOf(m)))
+                .toList();
+    }
+
+    /** 商品释放失败：延后重试 */
+    public void retryRelease(LeaseRelease release, Instant at) {
+        redis.opsForZSet().add(RELEASE_KEY, member(release.productId(), release.until()), at.toEpochMilli());
+    }
+
+    /** 取走到了重试时间的占用续约 */
+    public List<LeaseRenewal> claimDueRenewals(Instant now, int limit) {
+        return claimRaw(RENEW_KEY, now, limit).stream()
+                .map(m -> new LeaseRenewal(productOf(m), untilOf(m)))
+                .toList();
+    }
+
+    /** 占用续约失败：延后重试 */
+    public void retryRenewal(LeaseRenewal renewal, Instant at) {
+        redis.opsForZSet().add(RENEW_KEY, member(renewal.productId(), renewal.until()), at.toEpochMilli());
+    }
+
+    /** 批量写入（对账/重建用）：orderId -> 到期时间；ZADD 幂等，重复写入同一分数无副作用 */
+    public void addAll(Map<UUID, Instant> deadlines) {
+        if (deadlines.isEmpty()) return;
+        byte[] key = ORDERS_KEY.getBytes();
+        redis.executePipelined((RedisCallback<Object>) conn -> {
+            deadlines.forEach((id, at) ->
+                    conn.zSetCommands().zAdd(key, at.toEpochMilli(), id.toString().getBytes()));
+            return null;
+        });
+    }
+
+    private List<UUID> claim(String key, Instant now, int limit) {
+        return claimRaw(key, now, limit).stream().map(UUID::fromString).toList();
+    }
+
+    /** 续约/释放重试的成员："商品id@租约到期毫秒" */
+    private static String member(UUID productId, Instant until) {
+        return productId + "@" + until.toEpochMilli();
+    }
+
+    private static UUID productOf(String member) {
+        return UUID.fromString(member.substring(0, member.indexOf('@')));
+    }
+
+    private static Instant untilOf(String member) {
+        return Instant.ofEpochMilli(Long.parseLong(member.substring(member.indexOf('@') + 1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> claimRaw(String key, Instant now, int limit) {
+        List<String> members = redis.execute(CLAIM_DUE, List.of(key),
+                String.valueOf(now.toEpochMilli()), String.valueOf(limit));
+        return members == null ? List.of() : members;
+    }
+}
@@ -0,0 +1,53 @@
+package com.koalaswap.order.expiration;
+
+import com.koalaswap.order.client.ProductClient;
+import com.koalaswap.order.expiration.OrderExpiryQueue.LeaseRenewal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * PENDING 订单的商品占用续约
+ * - 下单提交后、重试队列到期时、定时对账时调用；product-service 侧按 greatest 续约，重复调用幂等
+ * - 调用异常进入 order:expiry:renew 重试（间隔 retry-delay，须小于商品侧初始租约，否则清扫任务会先释放商品）
+ * - 商品已不在占用中返回 false，只记日志、不再重试
+ */
+@Slf4j
+@Component
+public class ReservationLeaseRenewer {
+
+    private final ProductClient productClient;
+    private final OrderExpiryQueue queue;
+    private final Duration retryDelay;
+
+    public ReservationLeaseRenewer(ProductClient productClient, OrderExpiryQueue queue,
+                                   @Value("${app.order.expiry.retry-delay:PT30S}") Duration retryDelay) {
+        this.productClient = productClient;
+        this.queue = queue;
+        this.retryDelay = retryDelay;
+    }
+
+    public void renew(UUID productId, Instant until) {
+        renew(new LeaseRenewal(productId, until));
+    }
+
+    public void renew(LeaseRenewal renewal) {
+        if (!renewal.until().isAfter(Instant.now())) return; // 租约目标已过：订单早已超时，由过期流程处理
+        try {
+            if (!productClient.renewLease(renewal.productId(), renewal.until())) {
+                log.warn("reservation lease for product {} was not renewed (no longer reserved)", renewal.productId());
+            }
+        } catch (Exception e) {
+            log.warn("reservation lease renew for product {} failed, will retry: {}", renewal.productId(), e.toString());
+            try {
+                queue.retryRenewal(renewal, Instant.now().plus(retryDelay));
+            } catch (Exception ex) {
+                log.warn("reservation lease renew for product {} not queued: {}", renewal.productId(), ex.toString());
+            }
+        }
+    }
+}
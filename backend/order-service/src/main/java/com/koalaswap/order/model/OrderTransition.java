@@ -0,0 +1,57 @@
+package com.koalaswap.order.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 订单状态迁移表：每个动作的目标状态，以及买家/卖家/系统各自可以从哪些状态发起。
+ * OrderRepository.transition 按此表生成带条件的 UPDATE，状态与操作人不满足时一行也不会改。
+ */
+public enum OrderTransition {
+    /** 支付：买家，PENDING -> PAID */
+    PAY(OrderStatus.PAID,
+            EnumSet.of(OrderStatus.PENDING), EnumSet.noneOf(OrderStatus.class), EnumSet.noneOf(OrderStatus.class)),
+    /** 发货：卖家，PAID -> SHIPPED */
+    SHIP(OrderStatus.SHIPPED,
+            EnumSet.noneOf(OrderStatus.class), EnumSet.of(OrderStatus.PAID), EnumSet.noneOf(OrderStatus.class)),
+    /** 确认收货：买家，SHIPPED -> COMPLETED */
+    CONFIRM(OrderStatus.COMPLETED,
+            EnumSet.of(OrderStatus.SHIPPED), EnumSet.noneOf(OrderStatus.class), EnumSet.noneOf(OrderStatus.class)),
+    /** 取消：买家 PENDING/PAID；卖家 PENDING */
+    CANCEL(OrderStatus.CANCELLED,
+            EnumSet.of(OrderStatus.PENDING, OrderStatus.PAID), EnumSet.of(OrderStatus.PENDING), EnumSet.noneOf(OrderStatus.class)),
+    /** 超时：系统，PENDING -> CANCELLED */
+    EXPIRE(OrderStatus.CANCELLED,
+            EnumSet.noneOf(OrderStatus.class), EnumSet.noneOf(OrderStatus.class), EnumSet.of(OrderStatus.PENDING));
+
+    private final OrderStatus to;
+    private final Set<OrderStatus> byBuyer;
+    private final Set<OrderStatus> bySeller;
+    private final Set<OrderStatus> bySystem;
+
+    OrderTransition(OrderStatus to, Set<OrderStatus> byBuyer, Set<OrderStatus> bySeller, Set<OrderStatus> bySystem) {
+        this.to = to;
+        this.byBuyer = byBuyer;
+        this.bySeller = bySeller;
+        this.bySystem = bySystem;
+    }
+
+    public OrderStatus to() { return to; }
+
+    /** 迁移后订单是否结束（需要写 closed_at） */
+    public boolean closes() {
+        return to == OrderStatus.COMPLETED || to == OrderStatus.CANCELLED;
+    }
+
+    /** SQL 参数：逗号分隔的状态名（空集合为空串，配合 string_to_array 得到空数组） */
+    public String buyerFrom() { return join(byBuyer); }
+
+    public String sellerFrom() { return join(bySeller); }
+
+    public String systemFrom() { return join(bySystem); }
+
+    private static String join(Set<OrderStatus> statuses) {
+        return statuses.stream().map(Enum::name).collect(Collectors.joining(","));
+    }
+}
@@ -2,13 +2,20 @@ package com.koalaswap.order.repository;
 
 import com.koalaswap.order.entity.OrderEntity;
 import com.koalaswap.order.model.OrderStatus;
+import com.koalaswap.order.model.OrderTransition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Collection;
+import java.util.Optional;
 import java.util.UUID;
-import java.time.Instant;
 
 public interface OrderRepository extends JpaRepository<OrderEntity, UUID> {
 
@@ -23,7 +30,36 @@ public interface OrderRepository extends JpaRepository<OrderEntity, UUID> {
     Page<OrderEntity> findByBuyerId(UUID buyerId, Pageable pageable);
     Page<OrderEntity> findBySellerId(UUID sellerId, Pageable pageable);
 
+    // ----- 状态迁移 -----
+
+    /**
+     * 带条件的状态迁移：一条 UPDATE ... RETURNING 完成“校验操作人 + 校验当前状态 + 修改”，
+     * 并发的迁移中只有一个能命中，其余返回 empty（不会互相覆盖）。
+     * buyerFrom/sellerFrom 为逗号分隔的可发起状态（见 OrderTransition），空串表示该角色不可发起。
+     */
+    @Transactional
+    @Query(value = """
+        update orders
+        set status = cast(:to as order_status),
+            closed_at = case when :closes then :now else closed_at end,
+            version = version + 1
+        where id = :id
+          and ((buyer_id = :actor and cast(status as text) = any(string_to_array(:buyerFrom, ',')))
+            or (seller_id = :actor and cast(status as text) = any(string_to_array(:sellerFrom, ','))))
+        returning *
+        """, nativeQuery = true)
+    Optional<OrderEntity> updateStatusIf(@Param("id") UUID id,
+                                         @Param("actor") UUID actor,
+                                         @Param("buyerFrom") String buyerFrom,
+                                         @Param("sellerFrom") String sellerFrom,
+                                         @Param("to") String to,
+                                         @Param("closes") boolean closes,
+                                         @Param("now") LocalDateTime now);
 
-    // —— 自动过期用：分页拉取到期 PENDING —— //
-    Page<OrderEntity> findByStatusAndCreatedAtBefore(OrderStatus status, Instant before, Pageable pageable);
+    /** 按迁移表执行；命中返回迁移后的订单 */
+    default Optional<OrderEntity> transition(UUID id, UUID actor, OrderTransition t, Instant now) {
+        // TIMESTAMP 列按 UTC 存储（hibernate.jdbc.time_zone=UTC）
+        return updateStatusIf(id, actor, t.buyerFrom(), t.sellerFrom(), t.to().name(), t.closes(),
+                LocalDateTime.ofInstant(now, ZoneOffset.UTC));
+    }
 }
@@ -4,18 +4,30 @@ import com.koalaswap.order.client.ProductClient;
 import com.koalaswap.order.dto.*;
 import com.koalaswap.order.entity.OrderEntity;
 import com.koalaswap.order.events.OrderCompletedEvent;
+import com.koalaswap.order.expiration.OrderExpiryQueue;
+import com.koalaswap.order.expiration.ReservationLeaseRenewer;
 import com.koalaswap.order.model.OrderStatus;
+import com.koalaswap.order.model.OrderTransition;
 import com.koalaswap.order.repository.OrderRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
@@ -23,29 +35,39 @@ public class OrderService {
     private final ApplicationEventPublisher publisher;
     private final OrderRepository orders;
     private final ProductClient productClient;
+    private final JdbcTemplate jdbc;
+    private final OrderExpiryQueue expiryQueue;
+    private final ReservationLeaseRenewer leaseRenewer;
 
-    private static final Set<OrderStatus> OPEN = EnumSet.of(
-            OrderStatus.PENDING, OrderStatus.PAID, OrderStatus.SHIPPED
-    );
+    /** 同一商品只能有一个进行中订单的部分唯一索引 */
+    private static final String OPEN_ORDER_UNIQUE = "ux_orders_open_unique_product";
+
+    /** 过期取消的条件更新（OrderTransition.EXPIRE）：只处理仍可由系统取消且确已超时的订单 */
+    private static final String EXPIRE_SQL = """
+        update orders
+        set status = cast(? as order_status), closed_at = ?, version = version + 1
+        where id = any(?)
+          and cast(status as text) = any(string_to_array(?, ','))
+          and created_at <= ?
+        returning id, product_id, buyer_id, seller_id, created_at
+        """;
 
     /** 创建订单（买家发起） */
     @Transactional
     public OrderRes create(UUID buyerId, OrderCreateReq req) {
-        var p = productClient.getProduct(req.productId());
-        if (p.status() != ProductClient.ProductStatus.ACTIVE) {
+        // 占用并取卖家/价格：一次调用完成 ACTIVE -> RESERVED（product-service 侧排除自购）
+        var p = productClient.reserveForOrder(req.productId(), buyerId);
+        if (!p.reserved()) {
+            if (buyerId.equals(p.sellerId())) {
+                throw new IllegalArgumentException("You cannot purchase your own item.");
+            }
+            if (p.status() == ProductClient.ProductStatus.RESERVED) {
+                throw new IllegalArgumentException("This item has just been ordered. Please refresh and try again.");
+            }
             throw new IllegalArgumentException("This item is no longer available for sale.");
         }
-        if (buyerId.equals(p.sellerId())) {
-            throw new IllegalArgumentException("You cannot purchase your own item.");
-        }
-        // 并发占用检查
-        if (orders.existsByProductIdAndStatusIn(p.id(), OPEN)) {
-            throw new IllegalArgumentException("There is already an active order for this item.");
-        }
-        // 占用：ACTIVE -> RESERVED
-        if (!productClient.reserve(p.id())) {
-            throw new IllegalArgumentException("This item has just been ordered. Please refresh and try again.");
-        }
+        // 提交后续约占用到订单过期之后；回滚则撤销占用
+        settleReservation(p.id(), expiryQueue.leaseUntil(Instant.now()));
 
         var e = new OrderEntity();
         e.setProductId(p.id());
@@ -57,7 +79,14 @@ public class OrderService {
         if (req.shippingAddressId() != null) {
             e.setShippingAddressId(req.shippingAddressId());
         }
-        var saved = orders.save(e);
+        OrderEntity saved;
+        try {
+            saved = orders.saveAndFlush(e);
+        } catch (DataIntegrityViolationException ex) {
+            // 兜底：同一商品已有进行中的订单；其余约束（如收货地址外键）原样抛出
+            if (!violates(ex, OPEN_ORDER_UNIQUE)) throw ex;
+            throw new IllegalArgumentException("There is already an active order for this item.");
+        }
         // 发布 PENDING 事件
         publisher.publishEvent(new com.koalaswap.order.events.OrderStatusChangedEvent(
                 saved.getId(), saved.getProductId(), saved.getBuyerId(), saved.getSellerId(),
@@ -91,15 +120,15 @@ public class OrderService {
     /** 支付（模拟）：PENDING -> PAID，仅买家；并标记商品 SOLD */
     @Transactional
     public OrderRes pay(UUID buyerId, UUID id, PayReq req) {
-        var e = orders.findById(id).orElseThrow(() -> new IllegalArgumentException("Order does not exist."));
-        if (!e.getBuyerId().equals(buyerId)) throw new IllegalArgumentException("You can only pay for your own orders.");
-        if (e.getStatus() == OrderStatus.CANCELLED || e.getStatus() == OrderStatus.COMPLETED) return toRes(e);
-        if (e.getStatus() != OrderStatus.PENDING) return toRes(e); // 幂等：非 PENDING 直接返回
-
-        e.setStatus(OrderStatus.PAID);
-        var saved = orders.save(e);
+        var updated = orders.transition(id, buyerId, OrderTransition.PAY, Instant.now());
+        if (updated.isEmpty()) {
+            var e = orders.findById(id).orElseThrow(() -> new IllegalArgumentException("Order does not exist."));
+            if (!e.getBuyerId().equals(buyerId)) throw new IllegalArgumentException("You can only pay for your own orders.");
+            return toRes(e); // 幂等：非 PENDING 直接返回
+        }
+        var saved = updated.get();
         // 支付后：商品 SOLD（幂等）
-        productClient.markSold(e.getProductId());
+        productClient.markSold(saved.getProductId());
         // 发布 PAID 事件
         publisher.publishEvent(new com.koalaswap.order.events.OrderStatusChangedEvent(
                 saved.getId(), saved.getProductId(), saved.getBuyerId(), saved.getSellerId(),
@@ -111,13 +140,14 @@ public class OrderService {
     /** 发货：PAID -> SHIPPED，仅卖家 */
     @Transactional
     public OrderRes ship(UUID sellerId, UUID id, ShipReq req) {
-        var e = orders.findById(id).orElseThrow(() -> new IllegalArgumentException("Order does not exist."));
-        if (!e.getSellerId().equals(sellerId)) throw new IllegalArgumentException("You can only ship orders you sold.");
-        if (e.getStatus() == OrderStatus.CANCELLED || e.getStatus() == OrderStatus.COMPLETED) return toRes(e);
-        if (e.getStatus() != OrderStatus.PAID) throw new IllegalArgumentException("The current order status does not allow shipping.");
-
-        e.setStatus(OrderStatus.SHIPPED);
-        var saved = orders.save(e);
+        var updated = orders.transition(id, sellerId, OrderTransition.SHIP, Instant.now());
+        if (updated.isEmpty()) {
+            var e = orders.findById(id).orElseThrow(() -> new IllegalArgumentException("Order does not exist."));
+            if (!e.getSellerId().equals(sellerId)) throw new IllegalArgumentException("You can only ship orders you sold.");
+            if (e.getStatus() == OrderStatus.CANCELLED || e.getStatus() == OrderStatus.COMPLETED) return toRes(e);
+            throw new IllegalArgumentException("The current order status does not allow shipping.");
+        }
+        var saved = updated.get();
         // 发布 SHIPPED 事件
         publisher.publishEvent(new com.koalaswap.order.events.OrderStatusChangedEvent(
                 saved.getId(), saved.getProductId(), saved.getBuyerId(), saved.getSellerId(),
@@ -129,14 +159,14 @@ public class OrderService {
     /** 确认收货：SHIPPED -> COMPLETED，仅买家；保留商品 SOLD */
     @Transactional
     public OrderRes confirm(UUID buyerId, UUID id) {
-        var e = orders.findById(id).orElseThrow(() -> new IllegalArgumentException("Order does not exist."));
-        if (!e.getBuyerId().equals(buyerId)) throw new IllegalArgumentException("You can only confirm receipt for your own orders.");
-        if (e.getStatus() == OrderStatus.CANCELLED || e.getStatus() == OrderStatus.COMPLETED) return toRes(e);
-        if (e.getStatus() != OrderStatus.SHIPPED) throw new IllegalArgumentException("The current order status does not allow confirming receipt.");
-
-        e.setStatus(OrderStatus.COMPLETED);
-        e.setClosedAt(Instant.now());
-        var saved = orders.save(e);
+        var updated = orders.transition(id, buyerId, OrderTransition.CONFIRM, Instant.now());
+        if (updated.isEmpty()) {
+            var e = orders.findById(id).orElseThrow(() -> new IllegalArgumentException("Order does not exist."));
+            if (!e.getBuyerId().equals(buyerId)) throw new IllegalArgumentException("You can only confirm receipt for your own orders.");
+            if (e.getStatus() == OrderStatus.CANCELLED || e.getStatus() == OrderStatus.COMPLETED) return toRes(e);
+            throw new IllegalArgumentException("The current order status does not allow confirming receipt.");
+        }
+        var saved = updated.get();
 
         // 发布订单完成事件（review-service 使用）
         publisher.publishEvent(new OrderCompletedEvent(saved.getId(), saved.getBuyerId(), saved.getSellerId(), saved.getProductId(), saved.getClosedAt()));
@@ -151,61 +181,95 @@ public class OrderService {
     /** 取消：买家 PENDING/PAID；卖家 PENDING */
     @Transactional
     public OrderRes cancel(UUID actorId, UUID id, CancelReq req) {
+        var updated = orders.transition(id, actorId, OrderTransition.CANCEL, Instant.now());
+        if (updated.isEmpty()) throw cancelRejected(actorId, id);
+
+        var saved = updated.get();
+        // 取消：恢复商品 ACTIVE（无条件）
+        productClient.activate(saved.getProductId());
+        // 发布 CANCELLED 事件
+        publisher.publishEvent(new com.koalaswap.order.events.OrderStatusChangedEvent(
+                saved.getId(), saved.getProductId(), saved.getBuyerId(), saved.getSellerId(),
+                OrderStatus.CANCELLED, saved.getClosedAt()
+        ));
+        return toRes(saved);
+    }
+
+    /** 取消未命中：按当前状态给出原因 */
+    private RuntimeException cancelRejected(UUID actorId, UUID id) {
         var e = orders.findById(id).orElseThrow(() -> new IllegalArgumentException("Order does not exist."));
         boolean seller = e.getSellerId().equals(actorId);
         boolean buyer = e.getBuyerId().equals(actorId);
-        if (!seller && !buyer) throw new AccessDeniedException("Only the buyer or seller can cancel this order.");
+        if (!seller && !buyer) return new AccessDeniedException("Only the buyer or seller can cancel this order.");
 
-        switch (e.getStatus()) {
-            case CANCELLED, COMPLETED -> {
-                // 明确拒绝再次取消
-                throw new AccessDeniedException("This order has already been completed or cancelled and cannot be cancelled again.");
-            }
-            case PENDING -> {
-                // 取消：恢复商品 ACTIVE（无条件）
-                productClient.activate(e.getProductId());
-                e.setStatus(OrderStatus.CANCELLED);
-                e.setClosedAt(Instant.now());
-                var saved = orders.save(e);
-                // 发布 CANCELLED 事件
-                publisher.publishEvent(new com.koalaswap.order.events.OrderStatusChangedEvent(
-                        saved.getId(), saved.getProductId(), saved.getBuyerId(), saved.getSellerId(),
-                        OrderStatus.CANCELLED, saved.getClosedAt()
-                ));
-                return toRes(saved);
-            }
-            case PAID -> {
-                // 仅买家可取消：恢复商品 ACTIVE（无条件）
-                if (!buyer) throw new AccessDeniedException("Only the buyer can cancel the order after payment.");
-                productClient.activate(e.getProductId());
-                e.setStatus(OrderStatus.CANCELLED);
-                e.setClosedAt(Instant.now());
-                var saved = orders.save(e);
-                publisher.publishEvent(new com.koalaswap.order.events.OrderStatusChangedEvent(
-                        saved.getId(), saved.getProductId(), saved.getBuyerId(), saved.getSellerId(),
-                        OrderStatus.CANCELLED, saved.getClosedAt()
-                ));
-                return toRes(saved);
-            }
-            case SHIPPED -> throw new AccessDeniedException("The order has been shipped and cannot be cancelled.");
-            default -> throw new IllegalStateException("Unknown order status: " + e.getStatus());
-        }
+        return switch (e.getStatus()) {
+            // 明确拒绝再次取消
+            case CANCELLED, COMPLETED -> new AccessDeniedException("This order has already been completed or cancelled and cannot be cancelled again.");
+            case PAID -> new AccessDeniedException("Only the buyer can cancel the order after payment.");
+            case SHIPPED -> new AccessDeniedException("The order has been shipped and cannot be cancelled.");
+            // 读取时状态已被并发修改（例如刚被支付/过期）
+            case PENDING -> new IllegalArgumentException("The order status has just changed. Please refresh and try again.");
+        };
     }
 
-    /** 系统自动过期：PENDING 超时 -> CANCELLED，并恢复商品 ACTIVE（无条件） */
+    /** 已过期取消的订单（调用方据此按下单时间推算的租约释放商品） */
+    public record ExpiredOrder(UUID id, UUID productId, Instant createdAt) {}
+
+    /**
+     * 系统自动过期（批量）：PENDING 超时 -> CANCELLED，一条条件 UPDATE 完成，重复执行幂等。
+     * 只改订单状态，商品释放由调用方在提交后进行（HTTP 调用不占用事务）。
+     */
     @Transactional
-    public boolean expireAndCancel(UUID id) {
-        var e = orders.findById(id).orElse(null);
-        if (e == null || e.getStatus() != OrderStatus.PENDING) return false;
-
-        productClient.activate(e.getProductId());
-        e.setStatus(OrderStatus.CANCELLED);
-        e.setClosedAt(Instant.now());
-        orders.save(e);
-        return true;
+    public List<ExpiredOrder> expirePending(Collection<UUID> ids, Instant createdBefore) {
+        if (ids.isEmpty()) return List.of();
+        var now = Instant.now();
+        List<ExpiredOrder> expired = new ArrayList<>();
+        List<com.koalaswap.order.events.OrderStatusChangedEvent> events = new ArrayList<>();
+        jdbc.query(EXPIRE_SQL, ps -> {
+            // TIMESTAMP 列按 UTC 存储（hibernate.jdbc.time_zone=UTC）
+            ps.setString(1, OrderTransition.EXPIRE.to().name());
+            ps.setObject(2, LocalDateTime.ofInstant(now, ZoneOffset.UTC));
+            ps.setArray(3, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+            ps.setString(4, OrderTransition.EXPIRE.systemFrom());
+            ps.setObject(5, LocalDateTime.ofInstant(createdBefore, ZoneOffset.UTC));
+        }, rs -> {
+            var id = rs.getObject(1, UUID.class);
+            var productId = rs.getObject(2, UUID.class);
+            expired.add(new ExpiredOrder(id, productId,
+                    rs.getObject(5, LocalDateTime.class).toInstant(ZoneOffset.UTC)));
+            events.add(new com.koalaswap.order.events.OrderStatusChangedEvent(
+                    id, productId, rs.getObject(3, UUID.class), rs.getObject(4, UUID.class),
+                    OrderStatus.CANCELLED, now
+            ));
+        });
+        // 发布 CANCELLED 事件（结果集读完后再发布：监听器会在同一事务内写发件箱）
+        events.forEach(publisher::publishEvent);
+        return expired;
     }
 
     // ---------- helpers ----------
+    /**
+     * 事务结束后处理商品侧占用：提交则续约到 leaseUntil（商品侧初始租约很短，未续约会被自动释放）；
+     * 回滚则立即释放（RESERVED -> ACTIVE）。续约失败进入重试队列，定时对账也会为全部 PENDING 订单续约
+     */
+    private void settleReservation(UUID productId, Instant leaseUntil) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    leaseRenewer.renew(productId, leaseUntil); // 失败进入重试队列
+                } else if (status == STATUS_ROLLED_BACK) {
+                    try {
+                        productClient.release(productId);
+                    } catch (Exception ex) {
+                        // 未释放的占用在初始租约到期后由商品侧清扫任务恢复
+                        log.warn("release reservation for product {} failed: {}", productId, ex.toString());
+                    }
+                }
+            }
+        });
+    }
+
     private void assertParticipant(OrderEntity e, UUID userId) {
         if (!Objects.equals(e.getBuyerId(), userId) && !Objects.equals(e.getSellerId(), userId)) {
             throw new IllegalArgumentException("You do not have permission to access this order.");
@@ -227,6 +291,14 @@ public class OrderService {
         );
     }
 
+    /** 完整性异常是否由指定约束触发 */
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve) return constraint.equalsIgnoreCase(cve.getConstraintName());
+        }
+        return false;
+    }
+
     private static Sort safeSort(String sortParam) {
         if (sortParam == null || sortParam.isBlank()) return Sort.by(Sort.Order.desc("createdAt"));
         var parts = sortParam.split(",");
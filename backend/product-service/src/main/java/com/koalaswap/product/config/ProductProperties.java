@@ -7,10 +7,30 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "app.product")
 @Getter @Setter
 public class ProductProperties {
     /** 每个商品最多图片数（默认 10，可通过 yml 配置） */
     private int maxImages = 10;
+
+    /** 内部 brief 批量接口单次最多 id 数（超出返回 400，由调用方分批） */
+    private int briefBatchMax = 200;
+
+    /** 分类变更通知频道（收到后重建分类快照） */
+    private String categoryChangedChannel = "product:categories:changed";
+
+    /** 商品变更通知频道（修改/下架/上架/删除后发布，chat-service 据此失效 brief 缓存） */
+    private String productChangedChannel = "product:changed";
+
+    /** 下单占用的初始租约（order-service 建单提交后续约；到期未续约由清扫任务恢复 ACTIVE） */
+    private Duration reservationLease = Duration.ofMinutes(2);
+
+    /** 续约上限：单次续约最多延到 now + 该值 */
+    private Duration reservationMaxLease = Duration.ofDays(1);
+
+    /** 清扫任务每批释放的商品数 */
+    private int reservationSweepBatch = 200;
 }
@@ -2,11 +2,13 @@
 package com.koalaswap.product.config;
 
 import com.koalaswap.common.security.TokenFreshnessProperties;
+import com.koalaswap.product.events.CategoryChangedSubscriber;
 import com.koalaswap.product.security.PvChangedSubscriber;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
@@ -16,15 +18,19 @@ import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 public class RedisSubscriberConfig {
 
     private final TokenFreshnessProperties props;
+    private final ProductProperties productProps;
 
     @Bean
     public RedisMessageListenerContainer redisMessageListenerContainer(
             RedisConnectionFactory cf,
-            MessageListenerAdapter listenerAdapter
+            MessageListenerAdapter listenerAdapter,
+            CategoryChangedSubscriber categorySubscriber
     ) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(cf);
         container.addMessageListener(listenerAdapter, new PatternTopic(props.getPubsubChannel()));
+        // 分类变更 -> 重建本实例的分类快照
+        container.addMessageListener(categorySubscriber, new ChannelTopic(productProps.getCategoryChangedChannel()));
         return container;
     }
 
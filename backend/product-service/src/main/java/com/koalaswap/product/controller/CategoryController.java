@@ -6,10 +6,14 @@ package com.koalaswap.product.controller;
 
 import com.koalaswap.common.dto.ApiResponse;
 import com.koalaswap.product.dto.CategoryRes;
+import com.koalaswap.product.service.CategoryPayload;
 import com.koalaswap.product.service.CategoryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,6 +21,7 @@ import java.util.List;
  * 分类管理API
  * - 提供分类查询接口
  * - 支持平铺和树形两种数据格式
+ * - 平铺 / 树形接口直接写出预序列化的响应体，并支持 ETag + If-None-Match（命中返回 304）
  */
 @RestController
 @RequestMapping("/api/categories")
@@ -30,16 +35,17 @@ public class CategoryController {
      * GET /api/categories?format=flat
      *
      * 用途：下拉选择框、筛选条件等
-     * 返回：按层级排序的平铺列表
+     * 返回：按层级排序的平铺列表（format=tree 时为树形）
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ApiResponse<List<CategoryRes>> getCategories(
-            @RequestParam(defaultValue = "flat") String format
+    public ResponseEntity<byte[]> getCategories(
+            @RequestParam(defaultValue = "flat") String format,
+            WebRequest request
     ) {
         if ("tree".equals(format)) {
-            return ApiResponse.ok(categoryService.getCategoryTree());
+            return cached(categoryService.treePayload(), request);
         }
-        return ApiResponse.ok(categoryService.getAllFlat());
+        return cached(categoryService.flatPayload(), request);
     }
 
     /**
@@ -50,8 +56,8 @@ public class CategoryController {
      * 返回：嵌套的树形结构
      */
     @GetMapping(value = "/tree", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ApiResponse<List<CategoryRes>> getCategoryTree() {
-        return ApiResponse.ok(categoryService.getCategoryTree());
+    public ResponseEntity<byte[]> getCategoryTree(WebRequest request) {
+        return cached(categoryService.treePayload(), request);
     }
 
     /**
@@ -91,4 +97,19 @@ public class CategoryController {
     public ApiResponse<CategoryRes> getCategory(@PathVariable Integer id) {
         return ApiResponse.ok(categoryService.getCategory(id));
     }
-}
\ No newline at end of file
+
+    /**
+     * 写出预序列化响应；If-None-Match 与当前 ETag 一致时返回 304（checkNotModified 已写好状态码与 ETag 头）
+     * no-cache：客户端可缓存，但每次使用前须携带 ETag 重新校验，分类变更后能立即生效
+     */
+    private static ResponseEntity<byte[]> cached(CategoryPayload payload, WebRequest request) {
+        if (request.checkNotModified(payload.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(payload.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(payload.body());
+    }
+}
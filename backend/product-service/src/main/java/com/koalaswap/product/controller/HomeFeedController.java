@@ -2,6 +2,7 @@ package com.koalaswap.product.controller;
 
 import com.koalaswap.common.dto.ApiResponse;
 import com.koalaswap.common.security.SecuritySupport;
+import com.koalaswap.product.dto.CursorPageRes;
 import com.koalaswap.product.dto.ProductRes;
 import com.koalaswap.product.service.ProductService;
 import lombok.RequiredArgsConstructor;
@@ -22,9 +23,22 @@ public class HomeFeedController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "createdAt,desc") String sort,
+            @RequestParam(defaultValue = ProductService.VIEW_FULL) String view,  // full | card（仅封面图）
             Authentication auth
     ) {
         var excludeId = SecuritySupport.currentUserIdOrNull(auth);
-        return ApiResponse.ok(service.home(excludeId, page, size, sort));
+        return ApiResponse.ok(service.home(excludeId, page, size, sort, view));
+    }
+
+    /** 首页游标翻页（无限滚动）：cursor 取自上一页的 nextCursor，首次不传；不返回总数 */
+    @GetMapping("/home/cursor")
+    public ApiResponse<CursorPageRes<ProductRes>> homeByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = ProductService.VIEW_FULL) String view,
+            Authentication auth
+    ) {
+        var excludeId = SecuritySupport.currentUserIdOrNull(auth);
+        return ApiResponse.ok(service.homeByCursor(excludeId, cursor, size, view));
     }
 }
@@ -2,6 +2,7 @@ package com.koalaswap.product.controller;
 
 import com.koalaswap.common.dto.ApiResponse;
 import com.koalaswap.common.security.SecuritySupport;
+import com.koalaswap.product.dto.CursorPageRes;
 import com.koalaswap.product.dto.ProductCreateReq;
 import com.koalaswap.product.dto.ProductRes;
 import com.koalaswap.product.dto.ProductUpdateReq;
@@ -69,7 +70,7 @@ public class ProductController {
         return ApiResponse.ok(null);
     }
 
-    /** 查询/搜索/分页（匿名；仅 ACTIVE） */
+    /** 查询/搜索/分页（匿名；仅 ACTIVE）；mode=fulltext 时按相关度排序 */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public ApiResponse<Page<ProductRes>> search(
             @RequestParam(required = false) String kw,
@@ -80,10 +81,31 @@ public class ProductController {
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "createdAt,desc") String sort,
             @RequestParam(required = false) UUID excludeSellerId,
-            @RequestParam(required = false) UUID sellerId  // ★ 新增
+            @RequestParam(required = false) UUID sellerId,  // ★ 新增
+            @RequestParam(defaultValue = ProductService.MODE_LIKE) String mode,  // like | fulltext
+            @RequestParam(defaultValue = ProductService.VIEW_FULL) String view   // full | card
     ) {
         return ApiResponse.ok(
-                service.search(kw, catId, minPrice, maxPrice, page, size, sort, excludeSellerId, sellerId) // ★ 传入
+                service.search(kw, catId, minPrice, maxPrice, page, size, sort, excludeSellerId, sellerId, mode, view) // ★ 传入
+        );
+    }
+
+    /** 搜索游标翻页（匿名；仅 ACTIVE）：sort 支持 createdAt/price；cursor 取自上一页的 nextCursor */
+    @GetMapping(value = "/cursor", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ApiResponse<CursorPageRes<ProductRes>> searchByCursor(
+            @RequestParam(required = false) String kw,
+            @RequestParam(required = false) Integer catId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "createdAt,desc") String sort,
+            @RequestParam(required = false) UUID excludeSellerId,
+            @RequestParam(required = false) UUID sellerId,
+            @RequestParam(defaultValue = ProductService.VIEW_FULL) String view
+    ) {
+        return ApiResponse.ok(
+                service.searchByCursor(kw, catId, minPrice, maxPrice, cursor, size, sort, excludeSellerId, sellerId, view)
         );
     }
 
@@ -94,9 +116,10 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "createdAt,desc") String sort,
+            @RequestParam(defaultValue = ProductService.VIEW_FULL) String view,
             Authentication auth
     ) {
         UUID userId = SecuritySupport.requireUserId(auth);
-        return ApiResponse.ok(service.listMine(userId, tab, page, size, sort));
+        return ApiResponse.ok(service.listMine(userId, tab, page, size, sort, view));
     }
 }
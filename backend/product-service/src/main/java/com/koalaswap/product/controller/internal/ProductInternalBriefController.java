@@ -2,25 +2,44 @@
 package com.koalaswap.product.controller.internal;
 
 import com.koalaswap.common.dto.ApiResponse;
-import com.koalaswap.product.entity.Product;
-import com.koalaswap.product.entity.ProductImage;
-import com.koalaswap.product.repository.ProductImageRepository;
+import com.koalaswap.product.config.ProductProperties;
 import com.koalaswap.product.repository.ProductRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * 内部 brief 接口（chat 会话列表 / review 列表聚合调用，频率高）
+ * - 单条与批量均为一条 SQL（商品 + lateral 首图），不再逐个商品查图片
+ * - 批量上限 app.product.brief-batch-max（调用方 chat/review 读取同一环境变量 APP_PRODUCT_BRIEF_BATCH_MAX 分批）；
+ *   耗时与批量大小见 /actuator/metrics/product.brief.*
+ * - 批量 id 放在 JSON 请求体里：200 个 ids=uuid 查询参数约 8KB，会超过 Tomcat 默认请求头上限
+ */
 @RestController
 @RequestMapping("/api/internal/products/brief")
-@RequiredArgsConstructor
 public class ProductInternalBriefController {
 
     private final ProductRepository productRepo;
-    private final ProductImageRepository imageRepo;
+    private final ProductProperties props;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+
+    public ProductInternalBriefController(ProductRepository productRepo, ProductProperties props, MeterRegistry meters) {
+        this.productRepo = productRepo;
+        this.props = props;
+        this.batchTimer = Timer.builder("product.brief.batch")
+                .description("Internal product brief batch query time")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meters);
+        this.batchSize = DistributionSummary.builder("product.brief.batch.size")
+                .description("Distinct ids per brief batch request")
+                .register(meters);
+    }
 
     // 返回字段需与 chat 的 ProductClient.ProductBrief 一致（包含价格）
     public record ProductBriefRes(UUID id, UUID sellerId, String firstImageUrl, String title, java.math.BigDecimal price) {}
@@ -28,28 +47,31 @@ public class ProductInternalBriefController {
     /** 单个 brief：GET /api/internal/products/brief/{id}  -> ApiResponse<ProductBriefRes> */
     @GetMapping("/{id}")
     public ApiResponse<ProductBriefRes> one(@PathVariable UUID id) {
-        Product p = productRepo.findById(id)
+        return productRepo.findBriefsByIdIn(List.of(id)).stream()
+                .findFirst()
+                .map(ProductInternalBriefController::toRes)
+                .map(ApiResponse::ok)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "product not found"));
-        String first = imageRepo.findFirstByProductIdOrderBySortOrderAsc(p.getId())
-                .map(ProductImage::getUrl)
-                .orElse(null);
-        return ApiResponse.ok(new ProductBriefRes(p.getId(), p.getSellerId(), first, p.getTitle(), p.getPrice()));
     }
 
-    /** 批量 brief：GET /api/internal/products/brief/batch?ids={id}&ids={id2}...  -> ApiResponse<List<ProductBriefRes>> */
-    @GetMapping("/batch")
-    public ApiResponse<List<ProductBriefRes>> batch(@RequestParam(name = "ids", required = false) List<UUID> ids) {
+    /** 批量 brief：POST /api/internal/products/brief/batch  body=[id1, id2, ...]  -> ApiResponse<List<ProductBriefRes>> */
+    @PostMapping("/batch")
+    public ApiResponse<List<ProductBriefRes>> batch(@RequestBody(required = false) List<UUID> ids) {
         if (ids == null || ids.isEmpty()) return ApiResponse.ok(List.of());
         List<UUID> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
-
-        List<Product> products = productRepo.findAllById(distinct);
-        List<ProductBriefRes> out = new ArrayList<>(products.size());
-        for (Product p : products) {
-            String first = imageRepo.findFirstByProductIdOrderBySortOrderAsc(p.getId())
-                    .map(ProductImage::getUrl)
-                    .orElse(null);
-            out.add(new ProductBriefRes(p.getId(), p.getSellerId(), first, p.getTitle(), p.getPrice()));
+        if (distinct.isEmpty()) return ApiResponse.ok(List.of());
+        if (distinct.size() > props.getBriefBatchMax()) {
+            throw new IllegalArgumentException("Too many ids: " + distinct.size() + " (max " + props.getBriefBatchMax() + ")");
         }
+
+        batchSize.record(distinct.size());
+        List<ProductBriefRes> out = batchTimer.record(() -> productRepo.findBriefsByIdIn(distinct).stream()
+                .map(ProductInternalBriefController::toRes)
+                .toList());
         return ApiResponse.ok(out);
     }
+
+    private static ProductBriefRes toRes(ProductRepository.BriefView v) {
+        return new ProductBriefRes(v.getId(), v.getSellerId(), v.getFirstImageUrl(), v.getTitle(), v.getPrice());
+    }
 }
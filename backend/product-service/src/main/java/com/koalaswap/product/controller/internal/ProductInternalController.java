@@ -1,10 +1,12 @@
 package com.koalaswap.product.controller.internal;
 
 import com.koalaswap.common.dto.ApiResponse;
+import com.koalaswap.product.dto.ReserveRes;
 import com.koalaswap.product.service.ProductInternalService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.UUID;
 
 /**
@@ -21,17 +23,35 @@ public class ProductInternalController {
         return ApiResponse.ok(internal.reserve(id));
     }
 
+    /** 下单用：占用（ACTIVE -> RESERVED，排除自购）并返回卖家/价格等字段，一次调用完成 */
+    @PostMapping("/{id}/reserve-for-order")
+    public ApiResponse<ReserveRes> reserveForOrder(@PathVariable UUID id, @RequestParam UUID buyerId) {
+        return ApiResponse.ok(internal.reserveForOrder(id, buyerId));
+    }
+
+    /** 续约/确认占用：order-service 建单提交后把租约延到订单过期时间之后 */
+    @PostMapping("/{id}/lease")
+    public ApiResponse<Boolean> renewLease(@PathVariable UUID id, @RequestParam Instant until) {
+        return ApiResponse.ok(internal.renewLease(id, until));
+    }
+
     @PostMapping("/{id}/release")
     public ApiResponse<Boolean> release(@PathVariable UUID id) {
         return ApiResponse.ok(internal.release(id));
     }
 
+    /** 订单过期释放：until 为该订单的占用租约终点，商品租约更晚（已被其他订单占用）时不释放 */
+    @PostMapping("/{id}/release-expired")
+    public ApiResponse<Boolean> releaseExpired(@PathVariable UUID id, @RequestParam Instant until) {
+        return ApiResponse.ok(internal.releaseExpired(id, until));
+    }
+
     @PostMapping("/{id}/sold")
     public ApiResponse<Boolean> sold(@PathVariable UUID id) {
         return ApiResponse.ok(internal.markSold(id));
     }
 
-    /** 新增：无条件激活（订单取消/超时等场景使用） */
+    /** 新增：无条件激活（订单取消使用；超时释放走 release-expired） */
     @PostMapping("/{id}/activate")
     public ApiResponse<Boolean> activate(@PathVariable UUID id) {
         return ApiResponse.ok(internal.activate(id));
@@ -0,0 +1,18 @@
+// ===============================
+// backend/product-service/src/main/java/com/koalaswap/product/dto/CursorPageRes.java
+// DTO｜游标分页返回（无总数，适合无限滚动）
+// ===============================
+package com.koalaswap.product.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页返回模型
+ * - nextCursor：下一页游标（不透明字符串，原样回传）；无下一页时为 null
+ * - 不返回总数：避免每次滚动都执行 count(*)
+ */
+public record CursorPageRes<T>(
+        List<T> content,
+        String nextCursor,
+        boolean hasNext
+) {}
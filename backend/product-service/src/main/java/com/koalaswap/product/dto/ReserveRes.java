@@ -0,0 +1,20 @@
+package com.koalaswap.product.dto;
+
+import com.koalaswap.product.model.ProductStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * 内部接口：下单占用结果（order-service 调用）
+ * reserved=true 时 status 为 RESERVED；false 时为商品当前状态，供调用方给出原因（已售/被占用/自购）
+ */
+public record ReserveRes(
+        boolean reserved,
+        UUID id,
+        UUID sellerId,
+        String title,
+        BigDecimal price,
+        String currency,
+        ProductStatus status
+) {}
@@ -0,0 +1,31 @@
+// backend/product-service/src/main/java/com/koalaswap/product/events/CategoryChangedSubscriber.java
+package com.koalaswap.product.events;
+
+import com.koalaswap.product.service.CategoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订阅“分类已变更”通知（频道 app.product.category-changed-channel），
+ * 收到后重建本实例的分类快照；消息体内容不关心。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryChangedSubscriber implements MessageListener {
+
+    private final CategoryService categoryService;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            boolean rebuilt = categoryService.refresh();
+            log.debug("Category changed notification handled, rebuilt={}", rebuilt);
+        } catch (Exception e) {
+            log.warn("Failed to refresh category snapshot: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.koalaswap.product.events;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * 商品变更领域事件（标题/价格/图片修改、下架、重新上架、删除），
+ * 用于通知其它服务（如 chat-service）失效其商品 brief 缓存。
+ */
+public record ProductChangedEvent(
+        UUID productId,
+        String reason,
+        Instant occurredAt
+) {
+    public static final String UPDATED = "UPDATED";
+    public static final String HIDDEN = "HIDDEN";
+    public static final String RELISTED = "RELISTED";
+    public static final String DELETED = "DELETED";
+
+    public static ProductChangedEvent of(UUID productId, String reason) {
+        return new ProductChangedEvent(productId, reason, Instant.now());
+    }
+}
@@ -0,0 +1,38 @@
+package com.koalaswap.product.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koalaswap.product.config.ProductProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 将商品变更事件发布到 Redis 通道（默认 product:changed）。
+ * 事务提交后才发布，订阅方回源时能读到新数据。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductChangedPublisher {
+
+    private final StringRedisTemplate redis;
+    private final ProductProperties props;
+    private final ObjectMapper om = new ObjectMapper();
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent e) {
+        try {
+            String payload = om.createObjectNode()
+                    .put("productId", e.productId().toString())
+                    .put("reason", e.reason())
+                    .put("occurredAt", e.occurredAt() == null ? null : e.occurredAt().toString())
+                    .toString();
+            redis.convertAndSend(props.getProductChangedChannel(), payload);
+            log.debug("product-changed published: {}", payload);
+        } catch (Exception ex) {
+            log.warn("publish product-changed failed: {}", ex.toString());
+        }
+    }
+}
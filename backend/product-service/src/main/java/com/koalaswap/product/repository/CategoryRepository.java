@@ -39,4 +39,13 @@ public interface CategoryRepository extends JpaRepository<Category, Integer> {
      * 检查分类是否存在子分类
      */
     boolean existsByParentId(Integer parentId);
+
+    /**
+     * 分类数据指纹（行数 + 内容哈希），用于判断内存快照是否需要重建
+     */
+    @Query(value = """
+        select count(*) || ':' || coalesce(sum(hashtext(id || '/' || name || '/' || coalesce(parent_id, 0))), 0)
+        from product_categories
+        """, nativeQuery = true)
+    String fingerprint();
 }
\ No newline at end of file
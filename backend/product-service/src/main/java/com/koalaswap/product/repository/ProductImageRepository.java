@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.Optional;
@@ -21,6 +22,20 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, UUID
 
     Optional<ProductImage> findFirstByProductIdOrderBySortOrderAsc(UUID productId);
 
+    // === 列表页批量查询（一页一条 SQL，替代逐行查询） ===
+
+    /** 批量：多个商品的全部图片（按 sort_order），由 Service 按 productId 分组 */
+    List<ProductImage> findByProductIdInOrderBySortOrderAsc(Collection<UUID> productIds);
+
+    /** 批量：每个商品一张封面（主图优先，否则 sort_order 最小的一张） */
+    @Query(value = """
+        select distinct on (i.product_id) i.*
+        from product_images i
+        where i.product_id in (:ids) and i.image_url is not null
+        order by i.product_id, i.is_primary desc nulls last, i.sort_order asc nulls last, i.display_order asc
+        """, nativeQuery = true)
+    List<ProductImage> findCoversByProductIdIn(@Param("ids") Collection<UUID> productIds);
+
     /** 全量替换前，先删除旧图；放在 Service 的事务中使用 */
     @Modifying
     @Query("delete from ProductImage i where i.productId = :pid")
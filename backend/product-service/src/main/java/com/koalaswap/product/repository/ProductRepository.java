@@ -10,12 +10,16 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, UUID> {
+public interface ProductRepository extends JpaRepository<Product, UUID>, ProductSearchRepository {
 
-    // 搜索：仅某状态（通常 ACTIVE），支持层级分类查询 + 可选 sellerId 过滤
+    // 搜索：仅某状态（通常 ACTIVE），支持层级分类查询（至多两级）+ 可选 sellerId 过滤
+    // 注意：ProductService 已改用 searchLike（分类由内存快照展开为 ANY 数组），此处保留兼容
     @Query("""
         select p from Product p
         where p.status = :status
@@ -53,7 +57,8 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
         return searchByLikeWithStatus(ProductStatus.ACTIVE, kwLike, catId, minPrice, maxPrice, excludeSellerId, null, pageable);
     }
 
-    // 新增：带 sellerId 的默认重载（供 service 调用）
+    // 带 sellerId 的默认重载（已被 ProductSearchRepository.searchLike 取代，保持兼容）
+    @Deprecated(forRemoval = false, since = "2026-10")
     default Page<Product> searchByLike(String kwLike,
                                        Integer catId,
                                        BigDecimal minPrice,
@@ -89,8 +94,105 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
 
     Page<Product> findBySellerIdAndStatusIn(UUID sellerId, Collection<ProductStatus> statuses, Pageable pageable);
 
+    // ----- 内部 brief（chat / review 列表聚合用） -----
+
+    /** brief 投影：列名以带引号的别名返回，按属性名映射 */
+    interface BriefView {
+        UUID getId();
+        UUID getSellerId();
+        String getTitle();
+        BigDecimal getPrice();
+        String getFirstImageUrl();
+    }
+
+    /** 批量 brief：一条 SQL 带出首图（lateral 每个商品只取 sort_order 最小的一张，语义同 findFirstByProductIdOrderBySortOrderAsc） */
+    @Query(value = """
+        select p.id as "id", p.seller_id as "sellerId", p.title as "title", p.price as "price",
+               i.image_url as "firstImageUrl"
+        from products p
+        left join lateral (
+            select pi.image_url
+            from product_images pi
+            where pi.product_id = p.id
+            order by pi.sort_order asc nulls last
+            limit 1
+        ) i on true
+        where p.id in (:ids)
+        """, nativeQuery = true)
+    List<BriefView> findBriefsByIdIn(@Param("ids") Collection<UUID> ids);
+
     // ----- 状态切换 -----
 
+    /** 下单占用返回的字段（order-service 建单所需） */
+    interface ReservedView {
+        UUID getId();
+        UUID getSellerId();
+        String getTitle();
+        BigDecimal getPrice();
+        String getCurrency();
+    }
+
+    /**
+     * 下单占用 + 取 brief：一条 UPDATE ... RETURNING 完成 ACTIVE -> RESERVED 并写入租约到期时间；
+     * 商品不是 ACTIVE 或买家就是卖家时不更新，返回 empty
+     */
+    @Transactional
+    @Query(value = """
+        update products set status = 'RESERVED', reserved_until = :until
+        where id = :id and status = 'ACTIVE' and seller_id <> :buyerId
+        returning id as "id", seller_id as "sellerId", title as "title", price as "price", currency as "currency"
+        """, nativeQuery = true)
+    Optional<ReservedView> reserveReturning(@Param("id") UUID id, @Param("buyerId") UUID buyerId,
+                                            @Param("until") LocalDateTime until);
+
+    /** 占用（ACTIVE -> RESERVED）并写入租约到期时间 */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        update products set status = 'RESERVED', reserved_until = :until
+        where id = :id and status = 'ACTIVE'
+        """, nativeQuery = true)
+    int reserveWithLease(@Param("id") UUID id, @Param("until") LocalDateTime until);
+
+    /** 续约：仅对占用中的商品生效，只延后不提前 */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        update products set reserved_until = greatest(reserved_until, :until)
+        where id = :id and status = 'RESERVED'
+        """, nativeQuery = true)
+    int renewLease(@Param("id") UUID id, @Param("until") LocalDateTime until);
+
+    /**
+     * 订单过期释放（RESERVED -> ACTIVE）：仅当租约不晚于该订单应续到的时间 :until。
+     * 租约更晚说明商品已被其他订单重新占用并续约，不能释放
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        update products set status = 'ACTIVE', reserved_until = null
+        where id = :id and status = 'RESERVED'
+          and (reserved_until is null or reserved_until <= :until)
+        """, nativeQuery = true)
+    int releaseLeaseNotAfter(@Param("id") UUID id, @Param("until") LocalDateTime until);
+
+    /**
+     * 释放一批租约已到期的占用（RESERVED -> ACTIVE），返回被释放的商品 id；
+     * 走 idx_products_reserved_until，SKIP LOCKED 使多副本并行清扫互不阻塞
+     */
+    @Transactional
+    @Query(value = """
+        update products set status = 'ACTIVE', reserved_until = null
+        where id in (
+            select id from products
+            where status = 'RESERVED' and reserved_until is not null and reserved_until < :now
+            order by reserved_until
+            limit :limit
+            for update skip locked)
+        returning id
+        """, nativeQuery = true)
+    List<UUID> releaseExpiredReservations(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
     /** 仅当 from 匹配时进行状态切换（用于 RESERVED->ACTIVE 等） */
     @Modifying
     @Transactional
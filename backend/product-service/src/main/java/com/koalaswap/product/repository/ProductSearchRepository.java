@@ -0,0 +1,101 @@
+// product-service/src/main/java/com/koalaswap/product/repository/ProductSearchRepository.java
+package com.koalaswap.product.repository;
+
+import com.koalaswap.product.entity.Product;
+import com.koalaswap.product.model.ProductStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * 商品搜索（原生 SQL 片段，由 ProductRepository 继承）
+ * - 全文：search_vector @@ websearch_to_tsquery，按 ts_rank_cd 排序（走 idx_products_search）
+ * - 模糊：pg_trgm 词相似度，用于拼写错误兜底（走 idx_products_title_trgm）
+ * - 游标（keyset）：(排序列, id) 行比较翻页，返回 Slice，不发 count
+ * 过滤条件与 searchByLikeWithStatus 保持一致；null 表示不过滤。
+ * 分类过滤为 catIds（已由 CategoryService 展开为“自身 + 全部子孙”），SQL 中为 category_id = ANY(?)。
+ */
+public interface ProductSearchRepository {
+
+    /** 首页置顶的分类（男装），与 homeWithStatus 的排序保持一致 */
+    int HOME_BOOST_CATEGORY_ID = 2011;
+
+    /** 游标翻页支持的排序（排序列 + id 作为决胜列） */
+    enum KeysetOrder {
+        CREATED_AT_DESC("p.created_at", false),
+        CREATED_AT_ASC("p.created_at", true),
+        PRICE_ASC("p.price", true),
+        PRICE_DESC("p.price", false);
+
+        private final String column;
+        private final boolean ascending;
+
+        KeysetOrder(String column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+
+        public String column() { return column; }
+        public boolean ascending() { return ascending; }
+        public boolean byPrice() { return "p.price".equals(column); }
+    }
+
+    /** 子串匹配（like 语义）分页；pageable 的排序仅支持 createdAt / price / title */
+    Page<Product> searchLike(ProductStatus status,
+                             String kwLike,
+                             int[] catIds,
+                             BigDecimal minPrice,
+                             BigDecimal maxPrice,
+                             UUID excludeSellerId,
+                             UUID sellerId,
+                             Pageable pageable);
+
+    Page<Product> searchFullText(ProductStatus status,
+                                 String kw,
+                                 int[] catIds,
+                                 BigDecimal minPrice,
+                                 BigDecimal maxPrice,
+                                 UUID excludeSellerId,
+                                 UUID sellerId,
+                                 Pageable pageable);
+
+    Page<Product> searchFuzzy(ProductStatus status,
+                              String kw,
+                              int[] catIds,
+                              BigDecimal minPrice,
+                              BigDecimal maxPrice,
+                              UUID excludeSellerId,
+                              UUID sellerId,
+                              Pageable pageable);
+
+    /**
+     * 搜索（like 语义）的游标翻页
+     * @param afterValue 上一页最后一行的排序列值（Instant 或 BigDecimal）；null 表示第一页
+     * @param afterId    上一页最后一行的 id
+     */
+    Slice<Product> searchKeyset(ProductStatus status,
+                                String kwLike,
+                                int[] catIds,
+                                BigDecimal minPrice,
+                                BigDecimal maxPrice,
+                                UUID excludeSellerId,
+                                UUID sellerId,
+                                KeysetOrder order,
+                                Object afterValue,
+                                UUID afterId,
+                                int limit);
+
+    /**
+     * 首页游标翻页：boosted=true 只取置顶分类，false 取其余分类；均按 (created_at, id) 倒序
+     */
+    Slice<Product> homeKeyset(ProductStatus status,
+                              UUID excludeSellerId,
+                              boolean boosted,
+                              Instant afterCreatedAt,
+                              UUID afterId,
+                              int limit);
+}
@@ -0,0 +1,205 @@
+// product-service/src/main/java/com/koalaswap/product/repository/ProductSearchRepositoryImpl.java
+package com.koalaswap.product.repository;
+
+import com.koalaswap.product.entity.Product;
+import com.koalaswap.product.model.ProductStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * ProductSearchRepository 的实现（Spring Data 按 Impl 后缀自动拼接）
+ * - 只拼接非 null 的过滤条件，避免 PG 对 null 参数无法推断类型
+ * - 分类过滤为 category_id = ANY(数组)，不再在 SQL 内递归展开分类树
+ * - 使用 PageableExecutionUtils：最后一页不足 size 时不再发 count
+ */
+class ProductSearchRepositoryImpl implements ProductSearchRepository {
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "createdAt", "p.created_at",
+            "price", "p.price",
+            "title", "p.title"
+    );
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Page<Product> searchLike(ProductStatus status, String kwLike, int[] catIds,
+                                    BigDecimal minPrice, BigDecimal maxPrice,
+                                    UUID excludeSellerId, UUID sellerId, Pageable pageable) {
+        var where = new Where(status, catIds, minPrice, maxPrice, excludeSellerId, sellerId);
+        if (kwLike != null) {
+            where.and("(lower(p.title) like :kwLike or lower(p.description) like :kwLike)", "kwLike", kwLike);
+        }
+        return page(where, orderBy(pageable.getSort()), pageable);
+    }
+
+    @Override
+    public Page<Product> searchFullText(ProductStatus status, String kw, int[] catIds,
+                                        BigDecimal minPrice, BigDecimal maxPrice,
+                                        UUID excludeSellerId, UUID sellerId, Pageable pageable) {
+        var where = new Where(status, catIds, minPrice, maxPrice, excludeSellerId, sellerId);
+        where.and("p.search_vector @@ websearch_to_tsquery('english', :kw)", "kw", kw);
+        String order = "ts_rank_cd(p.search_vector, websearch_to_tsquery('english', :kw)) desc, p.created_at desc, p.id";
+        return page(where, order, pageable);
+    }
+
+    @Override
+    public Page<Product> searchFuzzy(ProductStatus status, String kw, int[] catIds,
+                                     BigDecimal minPrice, BigDecimal maxPrice,
+                                     UUID excludeSellerId, UUID sellerId, Pageable pageable) {
+        var where = new Where(status, catIds, minPrice, maxPrice, excludeSellerId, sellerId);
+        // <% 为 pg_trgm 的 word_similarity 运算符（阈值 pg_trgm.word_similarity_threshold，默认 0.6）
+        where.and(":kw <% lower(p.title)", "kw", kw);
+        String order = "word_similarity(:kw, lower(p.title)) desc, p.created_at desc, p.id";
+        return page(where, order, pageable);
+    }
+
+    @Override
+    public Slice<Product> searchKeyset(ProductStatus status, String kwLike, int[] catIds,
+                                       BigDecimal minPrice, BigDecimal maxPrice,
+                                       UUID excludeSellerId, UUID sellerId,
+                                       KeysetOrder order, Object afterValue, UUID afterId, int limit) {
+        var where = new Where(status, catIds, minPrice, maxPrice, excludeSellerId, sellerId);
+        if (kwLike != null) {
+            where.and("(lower(p.title) like :kwLike or lower(p.description) like :kwLike)", "kwLike", kwLike);
+        }
+        if (afterValue != null && afterId != null) {
+            where.after(order, afterValue, afterId);
+        }
+        return slice(where, order, limit);
+    }
+
+    @Override
+    public Slice<Product> homeKeyset(ProductStatus status, UUID excludeSellerId, boolean boosted,
+                                     Instant afterCreatedAt, UUID afterId, int limit) {
+        var where = new Where(status, null, null, null, excludeSellerId, null);
+        if (boosted) {
+            where.and("p.category_id = :boostCat", "boostCat", HOME_BOOST_CATEGORY_ID);
+        } else {
+            where.and("(p.category_id is null or p.category_id <> :boostCat)", "boostCat", HOME_BOOST_CATEGORY_ID);
+        }
+        if (afterCreatedAt != null && afterId != null) {
+            where.after(KeysetOrder.CREATED_AT_DESC, afterCreatedAt, afterId);
+        }
+        return slice(where, KeysetOrder.CREATED_AT_DESC, limit);
+    }
+
+    // ---------- helpers ----------
+
+    /** Sort -> 原生 ORDER BY（属性白名单，未知属性忽略；id 作为决胜列保证翻页稳定） */
+    private static String orderBy(Sort sort) {
+        var parts = new ArrayList<String>();
+        for (var o : sort) {
+            var column = SORT_COLUMNS.get(o.getProperty());
+            if (column != null) parts.add(column + (o.isAscending() ? " asc" : " desc"));
+        }
+        if (parts.isEmpty()) parts.add("p.created_at desc");
+        parts.add("p.id");
+        return String.join(", ", parts);
+    }
+
+    /** 多取一行判断 hasNext，不发 count */
+    @SuppressWarnings("unchecked")
+    private Slice<Product> slice(Where where, KeysetOrder order, int limit) {
+        String dir = order.ascending() ? "asc" : "desc";
+        Query q = em.createNativeQuery(
+                "select p.* from products p where " + where.sql()
+                        + " order by " + order.column() + " " + dir + ", p.id " + dir, Product.class);
+        where.bind(q);
+        q.setMaxResults(limit + 1);
+        List<Product> rows = q.getResultList();
+
+        boolean hasNext = rows.size() > limit;
+        var content = hasNext ? rows.subList(0, limit) : rows;
+        return new SliceImpl<>(content, PageRequest.of(0, limit), hasNext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<Product> page(Where where, String order, Pageable pageable) {
+        Query q = em.createNativeQuery(
+                "select p.* from products p where " + where.sql() + " order by " + order, Product.class);
+        where.bind(q);
+        q.setFirstResult((int) pageable.getOffset());
+        q.setMaxResults(pageable.getPageSize());
+        List<Product> content = q.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query cq = em.createNativeQuery("select count(*) from products p where " + where.sql());
+            where.bind(cq);
+            return ((Number) cq.getSingleResult()).longValue();
+        });
+    }
+
+    /** 过滤条件构造器：与 ProductRepository.searchByLikeWithStatus 的语义保持一致 */
+    private static final class Where {
+        private static final DateTimeFormatter UTC_TS =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS").withZone(ZoneOffset.UTC);
+
+        private final StringBuilder sql = new StringBuilder("p.status = cast(:status as product_status)");
+        private final Map<String, Object> params = new LinkedHashMap<>();
+
+        Where(ProductStatus status, int[] catIds, BigDecimal minPrice, BigDecimal maxPrice,
+              UUID excludeSellerId, UUID sellerId) {
+            params.put("status", status.name());
+            if (catIds != null) {
+                // 以 PG 数组字面量绑定单个参数：语句文本与分类数量无关，可复用执行计划
+                and("p.category_id = any(cast(:catIds as int[]))", "catIds", toArrayLiteral(catIds));
+            }
+            if (minPrice != null) and("p.price >= :minPrice", "minPrice", minPrice);
+            if (maxPrice != null) and("p.price <= :maxPrice", "maxPrice", maxPrice);
+            if (excludeSellerId != null) and("p.seller_id <> :excludeSellerId", "excludeSellerId", excludeSellerId);
+            if (sellerId != null) and("p.seller_id = :sellerId", "sellerId", sellerId);
+        }
+
+        /**
+         * keyset 条件：(排序列, id) 与上一页末行做行比较，可直接走 (status, 列, id) 复合索引。
+         * created_at 为无时区 TIMESTAMP（按 UTC 存储），以 UTC 文本绑定后 cast，避免驱动时区换算。
+         */
+        void after(KeysetOrder order, Object afterValue, UUID afterId) {
+            String op = order.ascending() ? ">" : "<";
+            String value = order.byPrice() ? ":afterValue" : "cast(:afterValue as timestamp)";
+            Object bound = order.byPrice() ? afterValue : UTC_TS.format((Instant) afterValue);
+            sql.append(" and (").append(order.column()).append(", p.id) ").append(op)
+                    .append(" (").append(value).append(", :afterId)");
+            params.put("afterValue", bound);
+            params.put("afterId", afterId);
+        }
+
+        void and(String clause, String name, Object value) {
+            sql.append(" and ").append(clause);
+            params.put(name, value);
+        }
+
+        String sql() { return sql.toString(); }
+
+        private static String toArrayLiteral(int[] ids) {
+            var sb = new StringBuilder("{");
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(ids[i]);
+            }
+            return sb.append('}').toString();
+        }
+
+        void bind(Query q) { params.forEach(q::setParameter); }
+    }
+}
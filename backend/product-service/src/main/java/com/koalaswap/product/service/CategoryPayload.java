@@ -0,0 +1,27 @@
+// ===============================
+// backend/product-service/src/main/java/com/koalaswap/product/service/CategoryPayload.java
+// 分类快照｜预序列化的 JSON 响应体 + 内容哈希 ETag
+// ===============================
+package com.koalaswap.product.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.DigestUtils;
+
+/**
+ * 预序列化的分类响应（随 CategoryTree 一起构建，构建后只读）
+ * - body：完整的 ApiResponse JSON 字节，控制器原样写出，不再逐请求走 Jackson
+ * - etag：body 的 MD5（强 ETag，带引号），内容不变则 ETag 不变，可直接比较 If-None-Match
+ * 注意：body 不做防御性拷贝，调用方只能读取、不得修改。
+ */
+public record CategoryPayload(byte[] body, String etag) {
+
+    static CategoryPayload of(ObjectMapper objectMapper, Object response) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            return new CategoryPayload(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize categories", e);
+        }
+    }
+}
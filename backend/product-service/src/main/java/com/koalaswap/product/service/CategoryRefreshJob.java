@@ -0,0 +1,29 @@
+// backend/product-service/src/main/java/com/koalaswap/product/service/CategoryRefreshJob.java
+package com.koalaswap.product.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 兜底：定时比对分类指纹，覆盖直接改库（SQL 脚本）等不会发 Redis 通知的场景。
+ * 指纹未变化时只有一条聚合查询，不重建快照。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryRefreshJob {
+
+    private final CategoryService categoryService;
+
+    @Scheduled(fixedDelayString = "${app.product.category-check-interval:PT60S}",
+               initialDelayString = "${app.product.category-check-interval:PT60S}")
+    public void checkForChanges() {
+        try {
+            categoryService.refresh();
+        } catch (Exception e) {
+            log.warn("Category snapshot check failed: {}", e.getMessage());
+        }
+    }
+}
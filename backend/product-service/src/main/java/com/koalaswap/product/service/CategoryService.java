@@ -4,34 +4,93 @@
 // ===============================
 package com.koalaswap.product.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koalaswap.common.dto.ApiResponse;
 import com.koalaswap.product.dto.CategoryRes;
-import com.koalaswap.product.entity.Category;
 import com.koalaswap.product.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 分类管理服务
+ * - 启动时把全量分类加载为不可变快照（CategoryTree），读请求不再访问数据库
+ * - 快照包含每个节点的子孙闭包，供搜索按分类过滤时直接展开为 id 数组
+ * - 分类变更后通过 refresh() 整体替换快照（Redis 通知 / 定时指纹校验，见 CategoryRefreshJob）
+ * - 同时预序列化树形 / 平铺两种响应体（含 ETag），与快照原子替换，供控制器直接返回或回 304
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+
+    /** 快照与对应的预序列化响应体，作为整体替换，读方不会看到不一致的组合 */
+    private record Snapshot(CategoryTree tree, CategoryPayload treeJson, CategoryPayload flatJson) {}
+
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        refresh();
+    }
+
+    /**
+     * 重新加载快照；数据未变化（指纹相同）时不重建
+     * @return 是否发生了重建
+     */
+    public synchronized boolean refresh() {
+        var fingerprint = categoryRepository.fingerprint();
+        var current = snapshot;
+        if (current != null && current.tree().fingerprint().equals(fingerprint)) {
+            return false;
+        }
+        var tree = CategoryTree.build(categoryRepository.findAllOrderedByHierarchy(), fingerprint);
+        var next = new Snapshot(tree,
+                CategoryPayload.of(objectMapper, ApiResponse.ok(tree.tree())),
+                CategoryPayload.of(objectMapper, ApiResponse.ok(tree.flat())));
+        snapshot = next;
+        log.info("Category snapshot rebuilt: {} categories, fingerprint={}, treeEtag={}, flatEtag={}",
+                tree.flat().size(), fingerprint, next.treeJson().etag(), next.flatJson().etag());
+        return true;
+    }
+
+    /** 当前快照（首次访问时若尚未预加载则同步加载） */
+    public CategoryTree tree() {
+        return current().tree();
+    }
+
+    /** 预序列化的树形响应（ApiResponse 的 JSON 字节） */
+    public CategoryPayload treePayload() {
+        return current().treeJson();
+    }
+
+    /** 预序列化的平铺响应（ApiResponse 的 JSON 字节） */
+    public CategoryPayload flatPayload() {
+        return current().flatJson();
+    }
+
+    private Snapshot current() {
+        var current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
 
     /**
      * 获取所有分类（平铺列表）
      * 用于下拉选择框等简单场景
      */
     public List<CategoryRes> getAllFlat() {
-        return categoryRepository.findAllOrderedByHierarchy()
-                .stream()
-                .map(this::toRes)
-                .toList();
+        return tree().flat();
     }
 
     /**
@@ -39,82 +98,47 @@ public class CategoryService {
      * 用于导航菜单等层级展示场景
      */
     public List<CategoryRes> getCategoryTree() {
-        var allCategories = categoryRepository.findAll();
-
-        // 按父ID分组
-        Map<Integer, List<Category>> categoryMap = allCategories.stream()
-                .collect(Collectors.groupingBy(
-                    c -> c.getParentId() == null ? -1 : c.getParentId()
-                ));
-
-        // 构建树结构
-        return buildCategoryTree(categoryMap.getOrDefault(-1, List.of()), categoryMap);
+        return tree().tree();
     }
 
     /**
      * 获取顶级分类
      */
     public List<CategoryRes> getTopLevelCategories() {
-        return categoryRepository.findByParentIdIsNullOrderById()
-                .stream()
-                .map(this::toRes)
-                .toList();
+        return tree().top();
     }
 
     /**
      * 获取指定分类的子分类
      */
     public List<CategoryRes> getChildCategories(Integer parentId) {
-        return categoryRepository.findByParentIdOrderById(parentId)
-                .stream()
-                .map(this::toRes)
-                .toList();
+        return tree().childrenOf(parentId);
     }
 
     /**
      * 获取分类详情
      */
     public CategoryRes getCategory(Integer id) {
-        var category = categoryRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Category does not exist: " + id));
-        return toRes(category);
+        var category = tree().get(id);
+        if (category == null) {
+            throw new IllegalArgumentException("Category does not exist: " + id);
+        }
+        return category;
     }
 
     /**
      * 检查分类是否存在
      */
     public boolean exists(Integer id) {
-        return categoryRepository.existsById(id);
-    }
-
-    // ---------- 私有方法 ----------
-
-    /**
-     * 递归构建分类树
-     */
-    private List<CategoryRes> buildCategoryTree(List<Category> categories, Map<Integer, List<Category>> categoryMap) {
-        return categories.stream()
-                .map(category -> {
-                    var children = categoryMap.getOrDefault(category.getId(), List.of());
-                    var childrenRes = buildCategoryTree(children, categoryMap);
-                    return CategoryRes.withChildren(
-                            category.getId(),
-                            category.getName(),
-                            category.getParentId(),
-                            childrenRes
-                    );
-                })
-                .toList();
+        return tree().contains(id);
     }
 
     /**
-     * 实体转响应对象
+     * 分类及其全部子孙分类的 id（含自身，层级不限）
+     * 用于搜索过滤：category_id = ANY(ids)；未知分类返回 [id]（与原先“只匹配自身”一致）
      */
-    private CategoryRes toRes(Category category) {
-        return CategoryRes.leaf(
-                category.getId(),
-                category.getName(),
-                category.getParentId()
-        );
+    public int[] selfAndDescendantIds(Integer id) {
+        var ids = tree().descendantsOf(id);
+        return ids.length == 0 ? new int[]{id} : ids;
     }
 }
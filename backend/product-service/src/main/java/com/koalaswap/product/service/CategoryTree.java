@@ -0,0 +1,138 @@
+// ===============================
+// backend/product-service/src/main/java/com/koalaswap/product/service/CategoryTree.java
+// 分类快照｜不可变的分类树 + 子孙闭包（由 CategoryService 整体替换）
+// ===============================
+package com.koalaswap.product.service;
+
+import com.koalaswap.product.dto.CategoryRes;
+import com.koalaswap.product.entity.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类快照（构建后只读，可被多线程无锁读取）
+ * - flat：与 findAllOrderedByHierarchy 相同顺序的平铺列表
+ * - tree：根节点列表（子节点按 id 升序）
+ * - descendants：每个节点的子孙闭包（含自身，升序 int[]），层级深度不限
+ */
+public final class CategoryTree {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final String fingerprint;
+    private final List<CategoryRes> flat;
+    private final List<CategoryRes> tree;
+    private final List<CategoryRes> top;
+    private final Map<Integer, CategoryRes> byId;
+    private final Map<Integer, List<CategoryRes>> children;
+    private final Map<Integer, int[]> descendants;
+
+    private CategoryTree(String fingerprint,
+                         List<CategoryRes> flat,
+                         List<CategoryRes> tree,
+                         List<CategoryRes> top,
+                         Map<Integer, CategoryRes> byId,
+                         Map<Integer, List<CategoryRes>> children,
+                         Map<Integer, int[]> descendants) {
+        this.fingerprint = fingerprint;
+        this.flat = flat;
+        this.tree = tree;
+        this.top = top;
+        this.byId = byId;
+        this.children = children;
+        this.descendants = descendants;
+    }
+
+    /**
+     * 由按层级排序的全量分类构建快照
+     * @param ordered     findAllOrderedByHierarchy 的结果（决定 flat 顺序）
+     * @param fingerprint 构建时的数据指纹（用于判断是否需要重建）
+     */
+    public static CategoryTree build(List<Category> ordered, String fingerprint) {
+        var flat = ordered.stream()
+                .map(c -> CategoryRes.leaf(c.getId(), c.getName(), c.getParentId()))
+                .toList();
+
+        // 父 -> 子（按 id 升序）；-1 表示根
+        Map<Integer, List<Category>> childMap = new HashMap<>();
+        for (var c : ordered) {
+            childMap.computeIfAbsent(c.getParentId() == null ? -1 : c.getParentId(), k -> new ArrayList<>()).add(c);
+        }
+        childMap.values().forEach(l -> l.sort(Comparator.comparing(Category::getId)));
+
+        Map<Integer, CategoryRes> byId = new HashMap<>();
+        Map<Integer, List<CategoryRes>> children = new HashMap<>();
+        for (var e : childMap.entrySet()) {
+            children.put(e.getKey(), e.getValue().stream()
+                    .map(c -> CategoryRes.leaf(c.getId(), c.getName(), c.getParentId()))
+                    .toList());
+        }
+        for (var r : flat) byId.put(r.id(), r);
+
+        var tree = buildTree(childMap.getOrDefault(-1, List.of()), childMap);
+        var top = children.getOrDefault(-1, List.of());
+
+        Map<Integer, int[]> descendants = new HashMap<>();
+        for (var c : ordered) {
+            descendants.put(c.getId(), closureOf(c.getId(), childMap));
+        }
+
+        children.remove(-1);
+        return new CategoryTree(fingerprint, flat, tree, top,
+                Map.copyOf(byId), Map.copyOf(children), Map.copyOf(descendants));
+    }
+
+    public String fingerprint() { return fingerprint; }
+
+    public List<CategoryRes> flat() { return flat; }
+
+    public List<CategoryRes> tree() { return tree; }
+
+    public List<CategoryRes> top() { return top; }
+
+    public CategoryRes get(Integer id) { return byId.get(id); }
+
+    public boolean contains(Integer id) { return byId.containsKey(id); }
+
+    public List<CategoryRes> childrenOf(Integer parentId) { return children.getOrDefault(parentId, List.of()); }
+
+    /** 子孙闭包（含自身，升序）；未知分类返回空数组。返回副本，调用方可随意修改 */
+    public int[] descendantsOf(Integer id) {
+        var ids = descendants.getOrDefault(id, EMPTY);
+        return Arrays.copyOf(ids, ids.length);
+    }
+
+    // ---------- 私有方法 ----------
+
+    private static List<CategoryRes> buildTree(List<Category> nodes, Map<Integer, List<Category>> childMap) {
+        return nodes.stream()
+                .map(c -> CategoryRes.withChildren(
+                        c.getId(),
+                        c.getName(),
+                        c.getParentId(),
+                        buildTree(childMap.getOrDefault(c.getId(), List.of()), childMap)))
+                .toList();
+    }
+
+    /** 迭代 DFS 收集子孙（带环保护：脏数据中的 parent 环不会导致死循环） */
+    private static int[] closureOf(int rootId, Map<Integer, List<Category>> childMap) {
+        var seen = new BitSet();
+        var out = new ArrayList<Integer>();
+        var stack = new ArrayList<Integer>();
+        stack.add(rootId);
+        while (!stack.isEmpty()) {
+            int id = stack.remove(stack.size() - 1);
+            if (seen.get(id)) continue;
+            seen.set(id);
+            out.add(id);
+            for (var child : childMap.getOrDefault(id, List.of())) stack.add(child.getId());
+        }
+        return out.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+}
@@ -2,6 +2,7 @@
 package com.koalaswap.product.service;
 
 import com.koalaswap.product.entity.Favorite;
+import com.koalaswap.product.entity.ProductImage;
 import com.koalaswap.product.repository.FavoriteRepository;
 import com.koalaswap.product.repository.ProductRepository;
 import com.koalaswap.product.repository.ProductImageRepository;
@@ -12,7 +13,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -56,13 +60,19 @@ public class FavoriteService {
 
         Page<FavoriteProductCard> page = favorites.findCardsByUserId(userId, effective);
 
+        // 整页封面一次查出（product_id IN (...)），避免逐行查询
+        var ids = page.getContent().stream()
+                .map(FavoriteProductCard::getProduct)
+                .filter(Objects::nonNull)
+                .map(p -> p.getId())
+                .toList();
+        Map<UUID, String> covers = ids.isEmpty() ? Map.of() : images.findCoversByProductIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductImage::getProductId, ProductImage::getUrl, (a, b) -> a));
+
         return page.map(card -> {
             var pid = card.getProduct() != null ? card.getProduct().getId() : null;
             if (pid != null) {
-                String first = images.findFirstByProductIdOrderBySortOrderAsc(pid)
-                        .map(img -> img.getUrl())
-                        .orElse(null);
-                card.setFirstImageUrl(first);
+                card.setFirstImageUrl(covers.get(pid));
             }
             return card;
         });
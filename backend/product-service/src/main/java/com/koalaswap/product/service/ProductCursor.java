@@ -0,0 +1,77 @@
+// ===============================
+// backend/product-service/src/main/java/com/koalaswap/product/service/ProductCursor.java
+// 游标编解码｜(排序键, 排序列值, id) <-> 不透明字符串
+// ===============================
+package com.koalaswap.product.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 商品列表游标
+ * - key：排序键（如 createdAt,desc / price,asc / home:boost / home:rest），用于校验游标与请求是否匹配
+ * - value：上一页末行的排序列值（createdAt 为 ISO-8601，price 为十进制字符串）
+ * - id：上一页末行的商品 id（决胜列）；value/id 为空表示“从该排序键的开头开始”
+ * 对外是 base64url 字符串，前端不应解析。
+ */
+public record ProductCursor(String key, String value, UUID id) {
+
+    private static final String SEP = "|";
+
+    /** 某排序键的起点（首页从置顶段切换到其余段时使用） */
+    public static ProductCursor startOf(String key) {
+        return new ProductCursor(key, "", null);
+    }
+
+    public static ProductCursor of(String key, Instant createdAt, UUID id) {
+        return new ProductCursor(key, createdAt.toString(), id);
+    }
+
+    public static ProductCursor of(String key, BigDecimal price, UUID id) {
+        return new ProductCursor(key, price.toPlainString(), id);
+    }
+
+    public String encode() {
+        var raw = key + SEP + value + SEP + (id == null ? "" : id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** 解析游标；空串/null 返回 null（表示第一页），格式不合法抛 400 */
+    public static ProductCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            var parts = raw.split("\\|", 3);
+            if (parts.length != 3) throw new IllegalArgumentException();
+            var id = parts[2].isEmpty() ? null : UUID.fromString(parts[2]);
+            return new ProductCursor(parts[0], parts[1], id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public boolean isStart() {
+        return id == null;
+    }
+
+    public Instant createdAt() {
+        if (isStart()) return null;
+        try {
+            return Instant.parse(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public BigDecimal price() {
+        if (isStart()) return null;
+        try {
+            return new BigDecimal(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+}
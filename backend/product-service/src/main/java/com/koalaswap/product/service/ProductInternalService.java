@@ -1,20 +1,45 @@
 package com.koalaswap.product.service;
 
+import com.koalaswap.product.config.ProductProperties;
+import com.koalaswap.product.dto.ReserveRes;
 import com.koalaswap.product.model.ProductStatus;
 import com.koalaswap.product.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class ProductInternalService {
     private final ProductRepository repo;
+    private final ProductProperties props;
 
-    /** 下单占用：ACTIVE -> RESERVED */
+    /** 下单占用：ACTIVE -> RESERVED（带初始租约） */
     public boolean reserve(UUID productId) {
-        return repo.updateStatusIf(productId, ProductStatus.ACTIVE, ProductStatus.RESERVED) > 0;
+        return repo.reserveWithLease(productId, leaseUntil()) > 0;
+    }
+
+    /** 下单占用并返回建单所需字段：成功路径一条 SQL；未占用时再读一次当前状态说明原因 */
+    public ReserveRes reserveForOrder(UUID productId, UUID buyerId) {
+        var hit = repo.reserveReturning(productId, buyerId, leaseUntil());
+        if (hit.isPresent()) {
+            var v = hit.get();
+            return new ReserveRes(true, v.getId(), v.getSellerId(), v.getTitle(), v.getPrice(), v.getCurrency(),
+                    ProductStatus.RESERVED);
+        }
+        var p = repo.findById(productId).orElseThrow(() -> new IllegalArgumentException("Item does not exist."));
+        return new ReserveRes(false, p.getId(), p.getSellerId(), p.getTitle(), p.getPrice(), p.getCurrency(),
+                p.getStatus());
+    }
+
+    /** 续约/确认占用：把租约延到 until（不超过 now + reservation-max-lease）；商品已不在占用中返回 false */
+    public boolean renewLease(UUID productId, Instant until) {
+        var max = Instant.now().plus(props.getReservationMaxLease());
+        return repo.renewLease(productId, utc(until.isAfter(max) ? max : until)) > 0;
     }
 
     /** 取消/超时释放：RESERVED -> ACTIVE（仅当当前为 RESERVED 才生效） */
@@ -22,6 +47,11 @@ public class ProductInternalService {
         return repo.updateStatusIf(productId, ProductStatus.RESERVED, ProductStatus.ACTIVE) > 0;
     }
 
+    /** 订单过期释放：仅释放仍由该订单占用的商品（租约不晚于订单的 until）；其他订单的占用不受影响 */
+    public boolean releaseExpired(UUID productId, Instant until) {
+        return repo.releaseLeaseNotAfter(productId, utc(until)) > 0;
+    }
+
     /** 支付后：标记已售出（允许从任意非 SOLD 状态进入 SOLD；幂等） */
     public boolean markSold(UUID productId) {
         return repo.updateStatusUnless(productId, ProductStatus.SOLD) > 0;
@@ -31,4 +61,13 @@ public class ProductInternalService {
     public boolean activate(UUID productId) {
         return repo.updateStatusUnless(productId, ProductStatus.ACTIVE) > 0;
     }
+
+    private LocalDateTime leaseUntil() {
+        return utc(Instant.now().plus(props.getReservationLease()));
+    }
+
+    // TIMESTAMP 列按 UTC 存储（hibernate.jdbc.time_zone=UTC）
+    private static LocalDateTime utc(Instant at) {
+        return LocalDateTime.ofInstant(at, ZoneOffset.UTC);
+    }
 }
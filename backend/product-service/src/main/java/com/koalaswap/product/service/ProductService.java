@@ -1,32 +1,50 @@
 package com.koalaswap.product.service;
 
 import com.koalaswap.product.config.ProductProperties;
+import com.koalaswap.product.dto.CursorPageRes;
 import com.koalaswap.product.dto.ProductCreateReq;
 import com.koalaswap.product.dto.ProductRes;
 import com.koalaswap.product.dto.ProductUpdateReq;
 import com.koalaswap.product.entity.Product;
 import com.koalaswap.product.entity.ProductImage;
+import com.koalaswap.product.events.ProductChangedEvent;
 import com.koalaswap.product.model.ProductStatus;
 import com.koalaswap.product.repository.ProductImageRepository;
 import com.koalaswap.product.repository.ProductRepository;
+import com.koalaswap.product.repository.ProductSearchRepository.KeysetOrder;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
+    public static final String MODE_LIKE = "like";
+    public static final String MODE_FULLTEXT = "fulltext";
+    public static final String VIEW_FULL = "full";
+    public static final String VIEW_CARD = "card";
+
+    /** 首页游标的两段：置顶分类段 / 其余商品段 */
+    private static final String HOME_BOOST = "home:boost";
+    private static final String HOME_REST = "home:rest";
+
     private final ProductRepository products;
     private final ProductImageRepository images;
     private final ProductProperties props;
+    private final CategoryService categories;
+    private final ApplicationEventPublisher events;
 
     /** 发布商品（默认 ACTIVE） */
     @Transactional
@@ -104,6 +122,7 @@ public class ProductService {
             }
         }
         var saved = products.save(p);
+        events.publishEvent(ProductChangedEvent.of(id, ProductChangedEvent.UPDATED));
         return toRes(saved, imageUrlsOf(id));
     }
 
@@ -115,6 +134,7 @@ public class ProductService {
         if (p.getStatus() == ProductStatus.HIDDEN) return; // 幂等
         p.setStatus(ProductStatus.HIDDEN);
         products.save(p);
+        events.publishEvent(ProductChangedEvent.of(id, ProductChangedEvent.HIDDEN));
     }
 
     // ProductService.java —— 仅替换这个方法
@@ -143,6 +163,7 @@ public class ProductService {
             var now = products.findById(id).orElseThrow();
             throw new IllegalArgumentException("The current item status does not allow relisting: " + now.getStatus());
         }
+        events.publishEvent(ProductChangedEvent.of(id, ProductChangedEvent.RELISTED));
     }
 
     /** 彻底删除（仅作者）：仅允许在 HIDDEN 状态；如存在订单将因外键失败 */
@@ -159,26 +180,55 @@ public class ProductService {
             // 订单引用（ON DELETE RESTRICT），数据库会拒绝；给出友好提示
             throw new IllegalArgumentException("This item has existing order records and cannot be deleted.");
         }
+        events.publishEvent(ProductChangedEvent.of(id, ProductChangedEvent.DELETED));
     }
 
     /** 搜索分页（仅 ACTIVE） */
     public Page<ProductRes> search(String kw, Integer catId, BigDecimal minPrice, BigDecimal maxPrice,
                                    int page, int size, String sort, UUID excludeSellerId, UUID sellerId) { // ★ 新增 sellerId
+        return search(kw, catId, minPrice, maxPrice, page, size, sort, excludeSellerId, sellerId, MODE_LIKE, VIEW_FULL);
+    }
+
+    /**
+     * 搜索分页（仅 ACTIVE），mode：
+     * - like（默认）：标题/描述子串匹配，按 sort 排序
+     * - fulltext：search_vector 全文检索，按相关度（ts_rank_cd）排序，忽略 sort；
+     *             无命中时回退到 pg_trgm 模糊匹配（容忍拼写错误）
+     * view：full（全部图片）| card（仅封面图），见 toResPage
+     */
+    public Page<ProductRes> search(String kw, Integer catId, BigDecimal minPrice, BigDecimal maxPrice,
+                                   int page, int size, String sort, UUID excludeSellerId, UUID sellerId,
+                                   String mode, String view) {
         int page0 = Math.max(0, page);
         int sizeClamped = Math.min(Math.max(size, 1), 50);
-        var pageable = PageRequest.of(page0, sizeClamped, safeSort(sort));
         var normalizedKw = normalizeKeyword(kw);
+        var catIds = categoryFilter(catId);
+
+        if (normalizedKw != null && MODE_FULLTEXT.equalsIgnoreCase(mode)) {
+            var pageable = PageRequest.of(page0, sizeClamped); // 排序由相关度决定
+            var pageData = products.searchFullText(
+                    ProductStatus.ACTIVE, kw.trim(), catIds, minPrice, maxPrice, excludeSellerId, sellerId, pageable
+            );
+            if (pageData.getTotalElements() == 0) {
+                pageData = products.searchFuzzy(
+                        ProductStatus.ACTIVE, normalizedKw, catIds, minPrice, maxPrice, excludeSellerId, sellerId, pageable
+                );
+            }
+            return toResPage(pageData, view);
+        }
+
+        var pageable = PageRequest.of(page0, sizeClamped, safeSort(sort));
         String kwLike = (normalizedKw == null) ? null : "%" + normalizedKw + "%";
 
         // ★ 传入 sellerId（null 时不生效）
-        var pageData = products.searchByLike(
-                kwLike, catId, minPrice, maxPrice, excludeSellerId, sellerId, pageable
+        var pageData = products.searchLike(
+                ProductStatus.ACTIVE, kwLike, catIds, minPrice, maxPrice, excludeSellerId, sellerId, pageable
         );
-        return pageData.map(pp -> toRes(pp, imageUrlsOf(pp.getId())));
+        return toResPage(pageData, view);
     }
 
     /** 我的发布：tab=onsale(默认：ACTIVE/RESERVED) | hidden(HIDDEN) */
-    public Page<ProductRes> listMine(UUID sellerId, String tab, int page, int size, String sort) {
+    public Page<ProductRes> listMine(UUID sellerId, String tab, int page, int size, String sort, String view) {
         int page0 = Math.max(0, page);
         int sizeClamped = Math.min(Math.max(size, 1), 50);
         var pageable = PageRequest.of(page0, sizeClamped, safeSort(sort));
@@ -189,16 +239,87 @@ public class ProductService {
         } else { // onsale
             pageData = products.findBySellerIdAndStatusIn(sellerId, List.of(ProductStatus.ACTIVE, ProductStatus.RESERVED), pageable);
         }
-        return pageData.map(p -> toRes(p, imageUrlsOf(p.getId())));
+        return toResPage(pageData, view);
     }
 
     /** 首页（仅 ACTIVE 且可选排除本人） */
-    public Page<ProductRes> home(UUID excludeSellerId, int page, int size, String sort) {
+    public Page<ProductRes> home(UUID excludeSellerId, int page, int size, String sort, String view) {
         int page0 = Math.max(0, page);
         int sizeClamped = Math.min(Math.max(size, 1), 50);
         var pageable = PageRequest.of(page0, sizeClamped, safeSort(sort));
         var pageData = products.home(excludeSellerId, pageable);
-        return pageData.map(p -> toRes(p, imageUrlsOf(p.getId())));
+        return toResPage(pageData, view);
+    }
+
+    /**
+     * 首页游标翻页（无限滚动）：先返回置顶分类，再返回其余商品，段内按 (createdAt, id) 倒序
+     * - 不执行 count；深翻页不再随 OFFSET 变慢
+     * - 与 home() 的排序一致（置顶分类优先），不接受 sort 参数
+     */
+    public CursorPageRes<ProductRes> homeByCursor(UUID excludeSellerId, String cursor, int size, String view) {
+        int limit = Math.min(Math.max(size, 1), 50);
+        var after = ProductCursor.decode(cursor);
+        if (after != null && !HOME_BOOST.equals(after.key()) && !HOME_REST.equals(after.key())) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+
+        List<Product> rows = new ArrayList<>(limit);
+        String next = null;
+
+        if (after == null || HOME_BOOST.equals(after.key())) {
+            var boosted = products.homeKeyset(ProductStatus.ACTIVE, excludeSellerId, true,
+                    after == null ? null : after.createdAt(), after == null ? null : after.id(), limit);
+            rows.addAll(boosted.getContent());
+            if (boosted.hasNext()) {
+                next = nextHomeCursor(HOME_BOOST, rows);
+            } else {
+                // 置顶段已取完：用剩余额度直接接上其余段（额度为 0 时仅探测是否还有数据）
+                var rest = products.homeKeyset(ProductStatus.ACTIVE, excludeSellerId, false,
+                        null, null, limit - rows.size());
+                rows.addAll(rest.getContent());
+                if (rest.hasNext()) {
+                    next = rest.getContent().isEmpty()
+                            ? ProductCursor.startOf(HOME_REST).encode()
+                            : nextHomeCursor(HOME_REST, rest.getContent());
+                }
+            }
+        } else {
+            var rest = products.homeKeyset(ProductStatus.ACTIVE, excludeSellerId, false,
+                    after.createdAt(), after.id(), limit);
+            rows.addAll(rest.getContent());
+            if (rest.hasNext()) next = nextHomeCursor(HOME_REST, rows);
+        }
+        return new CursorPageRes<>(toResList(rows, view), next, next != null);
+    }
+
+    /**
+     * 搜索游标翻页（like 语义，仅 ACTIVE）：sort 仅支持 createdAt / price（asc|desc），其它回落 createdAt,desc
+     * - 游标与 sort 绑定，换排序需从第一页重新开始
+     */
+    public CursorPageRes<ProductRes> searchByCursor(String kw, Integer catId, BigDecimal minPrice, BigDecimal maxPrice,
+                                                    String cursor, int size, String sort,
+                                                    UUID excludeSellerId, UUID sellerId, String view) {
+        int limit = Math.min(Math.max(size, 1), 50);
+        var order = keysetOrder(sort);
+        var after = ProductCursor.decode(cursor);
+        if (after != null && !order.name().equals(after.key())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort.");
+        }
+        Object afterValue = (after == null) ? null : (order.byPrice() ? after.price() : after.createdAt());
+        var normalizedKw = normalizeKeyword(kw);
+        String kwLike = (normalizedKw == null) ? null : "%" + normalizedKw + "%";
+
+        var slice = products.searchKeyset(ProductStatus.ACTIVE, kwLike, categoryFilter(catId), minPrice, maxPrice,
+                excludeSellerId, sellerId, order, afterValue, after == null ? null : after.id(), limit);
+
+        String next = null;
+        if (slice.hasNext()) {
+            var last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            next = (order.byPrice()
+                    ? ProductCursor.of(order.name(), last.getPrice(), last.getId())
+                    : ProductCursor.of(order.name(), last.getCreatedAt(), last.getId())).encode();
+        }
+        return new CursorPageRes<>(toResList(slice.getContent(), view), next, slice.hasNext());
     }
 
     // ---------- helpers ----------
@@ -214,6 +335,54 @@ public class ProductService {
                 .toList();
     }
 
+    /**
+     * 列表页转换：整页图片一次 product_id IN (...) 查出后在内存分组（避免逐行 N+1）
+     * - full：每个商品的全部图片
+     * - card：每个商品仅一张封面（主图优先，否则第一张）
+     */
+    private Page<ProductRes> toResPage(Page<Product> pageData, String view) {
+        var byProduct = imageUrlsByProduct(pageData.getContent(), view);
+        return pageData.map(p -> toRes(p, byProduct.getOrDefault(p.getId(), List.of())));
+    }
+
+    private List<ProductRes> toResList(List<Product> rows, String view) {
+        var byProduct = imageUrlsByProduct(rows, view);
+        return rows.stream().map(p -> toRes(p, byProduct.getOrDefault(p.getId(), List.of()))).toList();
+    }
+
+    private Map<UUID, List<String>> imageUrlsByProduct(List<Product> rows, String view) {
+        var ids = rows.stream().map(Product::getId).toList();
+        if (ids.isEmpty()) return Map.of();
+
+        var imgs = VIEW_CARD.equalsIgnoreCase(view)
+                ? images.findCoversByProductIdIn(ids)
+                : images.findByProductIdInOrderBySortOrderAsc(ids);
+        return imgs.stream()
+                .collect(Collectors.groupingBy(ProductImage::getProductId,
+                        Collectors.mapping(ProductImage::getUrl, Collectors.toList())));
+    }
+
+    /** 分类过滤：展开为“自身 + 全部子孙”（来自内存分类快照）；null 表示不过滤 */
+    private int[] categoryFilter(Integer catId) {
+        return catId == null ? null : categories.selfAndDescendantIds(catId);
+    }
+
+    private static String nextHomeCursor(String key, List<Product> rows) {
+        var last = rows.get(rows.size() - 1);
+        return ProductCursor.of(key, last.getCreatedAt(), last.getId()).encode();
+    }
+
+    /** 游标排序白名单：createdAt/price，其余回落 createdAt,desc */
+    private static KeysetOrder keysetOrder(String sortParam) {
+        if (sortParam == null || sortParam.isBlank()) return KeysetOrder.CREATED_AT_DESC;
+        var parts = sortParam.split(",", 2);
+        var field = parts[0].trim();
+        boolean asc = parts.length > 1 && "asc".equalsIgnoreCase(parts[1].trim());
+        if ("price".equals(field)) return asc ? KeysetOrder.PRICE_ASC : KeysetOrder.PRICE_DESC;
+        if ("createdAt".equals(field)) return asc ? KeysetOrder.CREATED_AT_ASC : KeysetOrder.CREATED_AT_DESC;
+        return KeysetOrder.CREATED_AT_DESC;
+    }
+
     private static ProductRes toRes(Product p, List<String> imgs) {
         return new ProductRes(
                 p.getId(),
@@ -0,0 +1,42 @@
+// backend/product-service/src/main/java/com/koalaswap/product/service/ReservationSweepJob.java
+package com.koalaswap.product.service;
+
+import com.koalaswap.product.config.ProductProperties;
+import com.koalaswap.product.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 占用租约清扫：把 reserved_until 已过期的 RESERVED 商品恢复为 ACTIVE。
+ * 覆盖 order-service 占用后未建单（崩溃/事务回滚后释放失败）等场景；建单成功的占用已由 order-service 续约。
+ * 每批一条 UPDATE（按到期时间走部分索引），满批时继续下一批。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReservationSweepJob {
+
+    private final ProductRepository products;
+    private final ProductProperties props;
+
+    @Scheduled(fixedDelayString = "${app.product.reservation-sweep-interval:PT15S}")
+    public void releaseExpired() {
+        try {
+            int batch = props.getReservationSweepBatch();
+            int released;
+            do {
+                // TIMESTAMP 列按 UTC 存储（hibernate.jdbc.time_zone=UTC）
+                var ids = products.releaseExpiredReservations(LocalDateTime.now(ZoneOffset.UTC), batch);
+                released = ids.size();
+                if (released > 0) log.info("Released {} expired reservations: {}", released, ids);
+            } while (released >= batch);
+        } catch (Exception e) {
+            log.warn("Reservation sweep failed: {}", e.getMessage());
+        }
+    }
+}
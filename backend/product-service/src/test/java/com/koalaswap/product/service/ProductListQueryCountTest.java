@@ -0,0 +1,155 @@
+// backend/product-service/src/test/java/com/koalaswap/product/service/ProductListQueryCountTest.java
+// 列表接口 SQL 条数回归：每页条数变大时，语句数必须保持不变（防止逐行查图片等 N+1 回归）
+package com.koalaswap.product.service;
+
+import com.koalaswap.product.config.ProductProperties;
+import com.koalaswap.product.repository.ProductImageRepository;
+import com.koalaswap.product.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 搜索 / 首页 / 我的发布：size=5 与 size=50 执行的 JDBC 语句数相同（内容 + count + 整页图片各一条）。
+ * 库结构与 infra/docker-compose.yml 一致：按顺序执行 database/ 下的初始化脚本。
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class ProductListQueryCountTest {
+
+    private static final Path DATABASE_DIR = Path.of("../../database");
+    private static final List<String> INIT_SCRIPTS = List.of(
+            "KoalaSwap_Schema_v2.0.sql", "KoalaSwap_v2.1.sql", "KoalaSwap_v2.2.sql", "KoalaSwap_v2.3.sql",
+            "KoalaSwap_v2.4.sql", "KoalaSwap_v2.5.sql", "KoalaSwap_v2.6.sql", "KoalaSwap_v2.7.sql");
+
+    /** 商品数需大于最大页长（50），保证两种页长都是满页、都会发 count */
+    private static final int PRODUCTS = 60;
+    private static final int IMAGES_PER_PRODUCT = 3;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = initScripts(new PostgreSQLContainer<>("postgres:15"));
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired ProductRepository products;
+    @Autowired ProductImageRepository images;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired EntityManagerFactory emf;
+
+    private ProductService service;
+    private Statistics stats;
+    private UUID sellerId;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductService(products, images, new ProductProperties(),
+                mock(CategoryService.class), mock(ApplicationEventPublisher.class));
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        sellerId = seed();
+    }
+
+    @Test
+    void searchLikeStatementCountIndependentOfPageSize() {
+        assertConstant(size -> service.search(null, null, null, null, 0, size, null, null, null,
+                ProductService.MODE_LIKE, ProductService.VIEW_FULL));
+    }
+
+    @Test
+    void searchFullTextStatementCountIndependentOfPageSize() {
+        assertConstant(size -> service.search("koala", null, null, null, 0, size, null, null, null,
+                ProductService.MODE_FULLTEXT, ProductService.VIEW_CARD));
+    }
+
+    @Test
+    void homeStatementCountIndependentOfPageSize() {
+        assertConstant(size -> service.home(null, 0, size, null, ProductService.VIEW_FULL));
+        assertConstant(size -> service.home(null, 0, size, null, ProductService.VIEW_CARD));
+    }
+
+    @Test
+    void listMineStatementCountIndependentOfPageSize() {
+        assertConstant(size -> service.listMine(sellerId, null, 0, size, null, ProductService.VIEW_FULL));
+    }
+
+    // ---------- 私有方法 ----------
+
+    private void assertConstant(IntConsumer call) {
+        long small = statementsFor(call, 5);
+        long large = statementsFor(call, 50);
+        assertThat(large).as("statements for size=50 vs size=5").isEqualTo(small);
+        assertThat(small).as("content + count + images").isLessThanOrEqualTo(3);
+    }
+
+    private long statementsFor(IntConsumer call, int size) {
+        stats.clear();
+        call.accept(size);
+        return stats.getPrepareStatementCount();
+    }
+
+    /** 一个卖家 + PRODUCTS 个 ACTIVE 商品，每个 IMAGES_PER_PRODUCT 张图；直接走 JDBC，不计入 Hibernate 统计 */
+    private UUID seed() {
+        var seller = jdbc.queryForObject("""
+                insert into users (email, password_hash, display_name)
+                values (?, 'x', 'seller') returning id
+                """, UUID.class, "seller-" + UUID.randomUUID() + "@example.com");
+
+        List<Object[]> productRows = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productRows.add(new Object[]{UUID.randomUUID(), seller, "Koala plush #" + i});
+        }
+        jdbc.batchUpdate("insert into products (id, seller_id, title, price) values (?, ?, ?, 10)", productRows);
+
+        List<Object[]> imageRows = new ArrayList<>();
+        for (var p : productRows) {
+            for (int k = 0; k < IMAGES_PER_PRODUCT; k++) {
+                imageRows.add(new Object[]{p[0], "https://cdn.example.com/" + p[0] + "/" + k, k, k});
+            }
+        }
+        jdbc.batchUpdate("""
+                insert into product_images (product_id, image_url, sort_order, display_order)
+                values (?, ?, ?, ?)
+                """, imageRows);
+        return seller;
+    }
+
+    /** 与 compose 的挂载顺序一致（01_schema.sql、02_v2.1.sql ...） */
+    private static PostgreSQLContainer<?> initScripts(PostgreSQLContainer<?> container) {
+        for (int i = 0; i < INIT_SCRIPTS.size(); i++) {
+            var script = INIT_SCRIPTS.get(i);
+            container.withCopyFileToContainer(MountableFile.forHostPath(DATABASE_DIR.resolve(script)),
+                    "/docker-entrypoint-initdb.d/%02d_%s".formatted(i + 1, script));
+        }
+        return container;
+    }
+}
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
@@ -22,6 +23,10 @@ public class ProductClient {
     @Value("${app.product-service.internal-base-url:${product-service.internal-base-url:${APP_PRODUCT_SERVICE_INTERNAL_BASE_URL:http://product-service:8080}}}")
     private String baseUrl;
 
+    /** 单次批量 id 上限：与 product-service 的 app.product.brief-batch-max 同一环境变量，超出则分批请求 */
+    @Value("${app.product-service.brief-batch-max:200}")
+    private int batchMax;
+
     private RestClient client() {
         return RestClient.builder().baseUrl(baseUrl).build();
     }
@@ -38,16 +43,24 @@ public class ProductClient {
         return resp != null ? resp.data() : null;
     }
 
-    /** 批量 brief：GET /api/internal/products/brief/batch?ids=... */
+    /** 批量 brief：POST /api/internal/products/brief/batch（超过 batchMax 个按批请求后合并） */
     public List<ProductBrief> batchBrief(Collection<UUID> ids) {
         if (ids == null || ids.isEmpty()) return List.of();
         List<UUID> distinct = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        List<ProductBrief> out = new ArrayList<>(distinct.size());
+        for (int from = 0; from < distinct.size(); from += batchMax) {
+            out.addAll(fetchBatch(distinct.subList(from, Math.min(from + batchMax, distinct.size()))));
+        }
+        return out;
+    }
+
+    private List<ProductBrief> fetchBatch(List<UUID> ids) {
         var type = new ParameterizedTypeReference<ApiResponse<List<ProductBrief>>>() {};
-        var resp = client().get().uri(uri -> {
-                    uri.path("/api/internal/products/brief/batch");
-                    for (UUID id : distinct) uri.queryParam("ids", id);
-                    return uri.build();
-                }).header(HttpHeaders.ACCEPT, "application/json")
+        var resp = client().post()
+                .uri("/api/internal/products/brief/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .body(ids)
                 .retrieve()
                 .body(type);
         return (resp != null && resp.data() != null) ? resp.data() : List.of();
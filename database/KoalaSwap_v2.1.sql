@@ -0,0 +1,23 @@
+-- =====================================================================
+-- KoalaSwap Schema v2.1 - 商品全文检索 / 模糊检索索引
+-- 目标：为 ProductService.search 的 fulltext 模式提供索引支持
+--       - search_vector + idx_products_search（v1.2 已有）：websearch_to_tsquery + ts_rank_cd
+--       - lower(title) 的 trigram GIN 索引：拼写容错兜底（<% / word_similarity），
+--         同时可加速 like 模式下的 lower(title) LIKE '%kw%'
+-- 执行前提：已执行 KoalaSwap_Schema_v2.0.sql
+-- PostgreSQL >= 13
+-- =====================================================================
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_products_title_trgm
+    ON products USING GIN (lower(title) gin_trgm_ops);
+
+-- 回填：触发器创建前导入的历史数据可能没有 search_vector
+UPDATE products
+SET search_vector = to_tsvector('english', coalesce(title,'') || ' ' || coalesce(description,''))
+WHERE search_vector IS NULL;
+
+-- 说明：
+-- 1) search_vector 由 trg_products_search 在 INSERT/UPDATE 时维护，无需应用层写入。
+-- 2) 大表上线时可改用 CREATE INDEX CONCURRENTLY（需在事务外执行）。
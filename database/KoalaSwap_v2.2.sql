@@ -0,0 +1,23 @@
+-- =====================================================================
+-- KoalaSwap Schema v2.2 - 商品列表游标（keyset）翻页索引
+-- 目标：为 /api/products/home/cursor 与 /api/products/cursor 提供
+--       (status, 排序列, id) 复合索引，使 (列, id) < (?, ?) 行比较可直接走索引范围扫描
+-- 执行前提：已执行 v2.1
+-- PostgreSQL >= 13
+-- =====================================================================
+
+-- 按发布时间翻页（倒序；正序时反向扫描同一索引）
+CREATE INDEX IF NOT EXISTS idx_products_status_created_id
+    ON products (status, created_at DESC, id DESC);
+
+-- 按价格翻页
+CREATE INDEX IF NOT EXISTS idx_products_status_price_id
+    ON products (status, price, id);
+
+-- 首页置顶分类段（category_id = 2011）与分类筛选后按时间翻页
+CREATE INDEX IF NOT EXISTS idx_products_category_status_created_id
+    ON products (category_id, status, created_at DESC, id DESC);
+
+-- 说明：
+-- 1) idx_products_status（v1.3）被上面的复合索引前缀覆盖，保留以免影响现有计划。
+-- 2) 大表上线时可改用 CREATE INDEX CONCURRENTLY（需在事务外执行）。
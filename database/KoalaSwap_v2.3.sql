@@ -0,0 +1,58 @@
+-- =====================================================================
+-- KoalaSwap Schema v2.3 - 会话内消息序号（seq）
+-- 目标：每条消息在插入时获得会话内单调递增的 seq，
+--       供 WebSocket 推送的缺口检测与断线重连后的增量同步（?afterSeq=）
+-- 执行前提：已执行 v2.2
+-- PostgreSQL >= 13
+-- =====================================================================
+
+ALTER TABLE conversations
+    ADD COLUMN IF NOT EXISTS last_seq BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE messages
+    ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+-- 回填历史消息：按 (created_at, id) 顺序编号
+UPDATE messages m
+SET seq = r.rn
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY conversation_id ORDER BY created_at, id) AS rn
+    FROM messages
+) r
+WHERE m.id = r.id
+  AND m.seq IS NULL;
+
+UPDATE conversations c
+SET last_seq = COALESCE((SELECT MAX(m.seq) FROM messages m WHERE m.conversation_id = c.id), 0)
+WHERE c.last_seq = 0;
+
+ALTER TABLE messages
+    ALTER COLUMN seq SET NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_messages_conv_seq
+    ON messages (conversation_id, seq);
+
+-- 插入时分配 seq：自增会话行上的计数器（持有行锁直到提交，同一会话的消息按 seq 顺序提交）
+CREATE OR REPLACE FUNCTION fn_assign_message_seq() RETURNS trigger AS $$
+BEGIN
+    UPDATE conversations
+    SET last_seq = last_seq + 1
+    WHERE id = NEW.conversation_id
+    RETURNING last_seq INTO NEW.seq;
+
+    IF NEW.seq IS NULL THEN
+        RAISE EXCEPTION 'conversation % does not exist', NEW.conversation_id
+            USING ERRCODE = 'foreign_key_violation';
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_assign_message_seq ON messages;
+CREATE TRIGGER trg_assign_message_seq
+    BEFORE INSERT ON messages
+    FOR EACH ROW EXECUTE FUNCTION fn_assign_message_seq();
+
+-- 说明：
+-- 1) 应用侧不写 seq（实体列 insertable=false），由触发器赋值并通过 INSERT ... RETURNING 读回。
+-- 2) 增量同步查询 where conversation_id = ? and seq > ? order by seq 走 uq_messages_conv_seq。
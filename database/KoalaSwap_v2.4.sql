@@ -0,0 +1,39 @@
+-- =====================================================================
+-- KoalaSwap Schema v2.4 - 系统消息去重键（dedup_key）
+-- 目标：订单/评价事件转成的 SYSTEM 消息按业务键去重，
+--       同一事件被重放或被多个 chat 副本同时消费时只落一条消息
+-- 执行前提：已执行 v2.3
+-- PostgreSQL >= 13
+-- =====================================================================
+
+ALTER TABLE messages
+    ADD COLUMN IF NOT EXISTS dedup_key TEXT;
+
+-- 回填历史系统消息：同一业务键只给最早的一条赋值（已有的重复消息保留，但不再参与去重）
+UPDATE messages m
+SET dedup_key = r.k
+FROM (
+    SELECT id, k, ROW_NUMBER() OVER (PARTITION BY k ORDER BY created_at, id) AS rn
+    FROM (
+        SELECT id, created_at,
+               CASE
+                   WHEN meta ? 'newStatus'  THEN 'order:'  || (meta->>'orderId') || ':' || (meta->>'newStatus')
+                   WHEN meta ? 'reviewerId' THEN 'review:' || (meta->>'orderId') || ':' || (meta->>'reviewerId')
+               END AS k
+        FROM messages
+        WHERE type = 'SYSTEM' AND meta IS NOT NULL
+    ) s
+    WHERE k IS NOT NULL
+) r
+WHERE m.id = r.id
+  AND r.rn = 1
+  AND m.dedup_key IS NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_messages_dedup_key
+    ON messages (dedup_key)
+    WHERE dedup_key IS NOT NULL;
+
+-- 说明：
+-- 1) 键格式：order:{orderId}:{newStatus} / review:{orderId}:{reviewerId}。
+-- 2) 应用侧先按键查已存在的消息再插入，避免 BEFORE INSERT 触发器为冲突行空耗 seq；
+--    并发竞争时由 INSERT ... ON CONFLICT DO NOTHING 兜底（此时 seq 可能出现空洞，客户端按 lastSeq 同步不受影响）。
@@ -0,0 +1,31 @@
+-- =====================================================================
+-- KoalaSwap Schema v2.5 - 订单事件发件箱（order_outbox）
+-- 目标：订单状态变更事件与订单状态在同一事务内落库，
+--       由 order-service 的 relay 批量发布到 Redis 并标记已发送（至少一次投递）
+-- 执行前提：已执行 v2.4
+-- PostgreSQL >= 13
+-- =====================================================================
+
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id         BIGSERIAL PRIMARY KEY,
+    channel    VARCHAR(100) NOT NULL,
+    payload    TEXT         NOT NULL,
+    created_at TIMESTAMP    NOT NULL DEFAULT NOW(),
+    sent_at    TIMESTAMP
+);
+
+-- relay 只扫描未发送的行（按 id 顺序），发送后该行即离开索引
+CREATE INDEX IF NOT EXISTS idx_order_outbox_unsent
+    ON order_outbox (id)
+    WHERE sent_at IS NULL;
+
+-- 清理已发送的历史行
+CREATE INDEX IF NOT EXISTS idx_order_outbox_sent_at
+    ON order_outbox (sent_at)
+    WHERE sent_at IS NOT NULL;
+
+-- 说明：
+-- 1) created_at / sent_at 由应用按 UTC 写入，与其它表一致（hibernate.jdbc.time_zone=UTC）。
+-- 2) 多个 order-service 副本用 SELECT ... FOR UPDATE SKIP LOCKED 分摊未发送的行，互不重复领取。
+-- 3) 发布成功但标记失败时该行会被再次发送；下游按业务键幂等
+--    （chat: messages.dedup_key；review: review_slots insertIfAbsent）。
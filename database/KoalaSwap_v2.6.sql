@@ -0,0 +1,36 @@
+-- =====================================================================
+-- KoalaSwap Schema v2.6 - 商品占用租约（products.reserved_until）
+-- 目标：下单占用（ACTIVE -> RESERVED）带到期时间；order-service 建单后续约，
+--       未续约/未释放的占用由 product-service 的清扫任务自动恢复 ACTIVE
+-- 执行前提：已执行 v2.5
+-- PostgreSQL >= 13
+-- =====================================================================
+
+ALTER TABLE products
+    ADD COLUMN IF NOT EXISTS reserved_until TIMESTAMP;
+
+-- 清扫任务按到期时间扫描占用中的商品
+CREATE INDEX IF NOT EXISTS idx_products_reserved_until
+    ON products (reserved_until)
+    WHERE status = 'RESERVED' AND reserved_until IS NOT NULL;
+
+-- 离开 RESERVED（售出/激活/释放/卖家改状态）时清空租约，避免残留的到期时间被下次占用误用
+CREATE OR REPLACE FUNCTION fn_products_clear_reservation() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.status <> 'RESERVED' THEN
+        NEW.reserved_until := NULL;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_products_clear_reservation ON products;
+CREATE TRIGGER trg_products_clear_reservation
+    BEFORE UPDATE OF status ON products
+    FOR EACH ROW
+    EXECUTE FUNCTION fn_products_clear_reservation();
+
+-- 说明：
+-- 1) reserved_until 由应用按 UTC 写入，与其它表一致（hibernate.jdbc.time_zone=UTC）。
+-- 2) 升级前已处于 RESERVED 的商品 reserved_until 为 NULL，不参与自动释放，仍由订单取消/过期恢复。
+-- 3) 多个 product-service 副本用 FOR UPDATE SKIP LOCKED 分摊清扫，互不阻塞。
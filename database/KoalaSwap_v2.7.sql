@@ -0,0 +1,31 @@
+-- =====================================================================
+-- KoalaSwap Schema v2.7 - 消息 seq 触发器：会话不存在时按外键约束报错
+-- 目标：fn_assign_message_seq（v2.3）在会话不存在时抛出的异常带上约束名
+--       messages_conversation_id_fkey，与真实外键失败一致；
+--       chat-service 据此把“发到不存在的会话”映射为 404，其余完整性错误原样抛出
+-- 执行前提：已执行 v2.6
+-- PostgreSQL >= 13
+-- =====================================================================
+
+CREATE OR REPLACE FUNCTION fn_assign_message_seq() RETURNS trigger AS $$
+BEGIN
+    UPDATE conversations
+    SET last_seq = last_seq + 1
+    WHERE id = NEW.conversation_id
+    RETURNING last_seq INTO NEW.seq;
+
+    IF NEW.seq IS NULL THEN
+        -- 文案与 PostgreSQL 外键报错一致：Hibernate 从消息文本中解析约束名
+        RAISE EXCEPTION 'insert or update on table "messages" violates foreign key constraint "messages_conversation_id_fkey"'
+            USING ERRCODE = 'foreign_key_violation',
+                  CONSTRAINT = 'messages_conversation_id_fkey',
+                  TABLE = 'messages',
+                  DETAIL = format('conversation %s does not exist', NEW.conversation_id);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 说明：
+-- 1) 触发器 trg_assign_message_seq 沿用 v2.3 的定义，无需重建。
+-- 2) 异常在 BEFORE INSERT 阶段抛出，早于真正的外键检查，因此约束名必须由触发器自己给出。
@@ -24,8 +24,31 @@ export type MessageResponse = {
     systemEvent?: "ORDER_PLACED" | "PAID" | "SHIPPED" | "COMPLETED" | "CANCELLED" | "BUYER_REVIEWED" | "SELLER_REVIEWED" | null;
     meta?: string | null;
     createdAt: string;
+    seq?: number; // 会话内序号（单调递增），用于缺口检测 / 增量同步
 };
 
+export type MessageHistory = {
+    messages: MessageResponse[]; // 最新在前
+    nextBefore: number | null;
+    hasMore: boolean;
+};
+
+export type MessageDelta = {
+    messages: MessageResponse[];
+    lastSeq: number;
+    hasMore: boolean;
+};
+
+// /user/queue/chat 推送：窗口内合并的收件箱变化（unread 为各会话最新未读数）
+export type InboxChanged =
+    | {
+          kind: "CONV_UPDATED";
+          conversationIds: string[];
+          unread: Record<string, number>;
+          unreadTotal?: number; // 同一窗口内角标总数有变化时携带
+      }
+    | { kind: "UNREAD_TOTAL"; total: number };
+
 export type ConversationListItem = {
     id: string;
     productId?: string | null;
@@ -115,6 +138,26 @@ export async function listMessages(params: { id: string; page?: number; size?: n
     return data.data;
 }
 
+// 历史游标翻页：最新在前；加载更早的消息时传上一页的 nextBefore
+export async function listMessageHistory(params: { id: string; before?: number | null; limit?: number }) {
+    const { id, before, limit = 30 } = params;
+    const { data } = await chatApi.get<ApiResponse<MessageHistory>>(`/api/chat/conversations/${id}/messages`, {
+        params: before == null ? { limit } : { before, limit },
+    });
+    if (!data.ok || !data.data) throw new Error(data.message || "List messages failed");
+    return data.data;
+}
+
+// 增量同步：拉取 seq > afterSeq 的消息（断线重连或发现 seq 缺口时使用）
+export async function listMessagesAfter(params: { id: string; afterSeq: number; limit?: number }) {
+    const { id, afterSeq, limit = 100 } = params;
+    const { data } = await chatApi.get<ApiResponse<MessageDelta>>(`/api/chat/conversations/${id}/messages`, {
+        params: { afterSeq, limit },
+    });
+    if (!data.ok || !data.data) throw new Error(data.message || "Sync messages failed");
+    return data.data;
+}
+
 export async function sendTextMessage(id: string, body: string) {
     const { data } = await chatApi.post<ApiResponse<MessageResponse>>(`/api/chat/conversations/${id}/messages`, {
         type: "TEXT",
@@ -133,6 +176,12 @@ export async function sendImageMessage(id: string, imageUrl: string) {
     return data.data;
 }
 
+export async function getUnreadTotal() {
+    const { data } = await chatApi.get<ApiResponse<number>>("/api/chat/unread-total");
+    if (!data.ok || data.data == null) throw new Error(data.message || "Get unread total failed");
+    return data.data;
+}
+
 export async function markRead(id: string, lastMessageId: string) {
     const { data } = await chatApi.post<ApiResponse<boolean>>(`/api/chat/conversations/${id}/read`, null, {
         params: { lastMessageId },
@@ -1,6 +1,6 @@
 // src/api/products.ts
 import { productApi } from "./http";
-import type { Page, ProductRes, ApiResponse } from "./types";
+import type { Page, CursorPage, ProductRes, ApiResponse } from "./types";
 import { DEBUG, dlog } from "../debug";
 
 /** ========== 新增：发布所需类型（与后端枚举保持一致） ========== */
@@ -38,11 +38,22 @@ export async function fetchHomeProducts(
 ) {
     const { data } = await productApi.get<MaybeWrapped<Page<ProductRes>>>(
         "/api/products/home",
-        { params: { page, size, sort } }
+        { params: { page, size, sort, view: "card" } } // 卡片只用首图，后端仅返回封面
     );
     return unwrap<Page<ProductRes>>(data);
 }
 
+/** 首页瀑布流（游标翻页：不做 count，深翻页不变慢） */
+export async function fetchHomeProductsByCursor(
+    { cursor, size = 20 }: { cursor?: string | null; size?: number }
+) {
+    const { data } = await productApi.get<MaybeWrapped<CursorPage<ProductRes>>>(
+        "/api/products/home/cursor",
+        { params: { cursor: cursor || undefined, size, view: "card" } }
+    );
+    return unwrap<CursorPage<ProductRes>>(data);
+}
+
 /** 搜索 + 筛选 */
 export type SearchParams = {
     page?: number;
@@ -52,17 +63,18 @@ export type SearchParams = {
     minPrice?: number;
     maxPrice?: number;
     sort?: string;
+    mode?: "like" | "fulltext"; // fulltext：按相关度排序（无命中时后端回退模糊匹配）
 };
 
 export async function searchProducts(params: SearchParams) {
     const {
-        page = 0, size = 20, keyword, catId, minPrice, maxPrice, sort = "createdAt,desc",
+        page = 0, size = 20, keyword, catId, minPrice, maxPrice, sort = "createdAt,desc", mode,
     } = params;
 
     // 兼容：后端参数名是 kw，这里做一次映射
     const { data } = await productApi.get<MaybeWrapped<Page<ProductRes>>>(
         "/api/products",
-        { params: { page, size, kw: keyword, catId, minPrice, maxPrice, sort } }
+        { params: { page, size, kw: keyword, catId, minPrice, maxPrice, sort, mode, view: "card" } }
     );
     return unwrap<Page<ProductRes>>(data);
 }
@@ -14,6 +14,13 @@ export type Page<T> = {
     totalPages: number;
 };
 
+// 游标分页（后端 CursorPageRes<T>）：无总数，nextCursor 原样回传
+export type CursorPage<T> = {
+    content: T[];
+    nextCursor: string | null;
+    hasNext: boolean;
+};
+
 // 鉴权/用户简要类型（与你后端 DTO 对齐，必要时可微调字段名）
 export type MyProfileRes = {
     id: string;
@@ -1,6 +1,6 @@
 import { useEffect, useRef } from "react";
 import { useInfiniteQuery } from "@tanstack/react-query";
-import { fetchHomeProducts } from "../api/products";
+import { fetchHomeProductsByCursor } from "../api/products";
 import { ProductCard } from "../components/ProductCard";
 import { PromoBanner } from "../components/PromoBanner";
 import { TaobaoStyleNavigation } from "../components/TaobaoStyleNavigation";
@@ -21,16 +21,14 @@ export function HomePage() {
         hasNextPage,
         isFetchingNextPage,
     } = useInfiniteQuery({
-        queryKey: ["home-infinite", size, token ? "auth" : "guest"],
-        queryFn: ({ pageParam = 0 }) =>
-            fetchHomeProducts({ page: pageParam, size, sort: "createdAt,desc" }),
+        queryKey: ["home-infinite-cursor", size, token ? "auth" : "guest"],
+        queryFn: ({ pageParam }) =>
+            fetchHomeProductsByCursor({ cursor: pageParam, size }),
         getNextPageParam: (lastPage) => {
-            // 如果还有下一页，返回下一页页码
-            return lastPage.number < lastPage.totalPages - 1
-                ? lastPage.number + 1
-                : undefined;
+            // 游标翻页：后端返回的 nextCursor 即下一页参数
+            return lastPage.hasNext ? lastPage.nextCursor : undefined;
         },
-        initialPageParam: 0,
+        initialPageParam: null as string | null,
         staleTime: 30_000,
     });
 